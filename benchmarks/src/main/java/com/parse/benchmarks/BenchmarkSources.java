@@ -0,0 +1,162 @@
+package com.parse.benchmarks;
+
+/**
+ * The utility class BenchmarkSources. It builds the synthetic inputs of the
+ * benchmarks. The inputs only depend on their parameters, thus the results of
+ * different releases are comparable.
+ */
+public class BenchmarkSources {
+
+	/**
+	 * The indentation unit
+	 */
+	private static final String INDENT = "    ";
+
+	private BenchmarkSources() {
+		// Its a utility class. Thus instantiation is not allowed.
+	}
+
+	/**
+	 * Appends the operand, cycling through the shapes found in real conditions
+	 */
+	private static void appendOperand(StringBuilder builder, int operand) {
+
+		switch (operand % 6) {
+		case 0:
+			builder.append("a").append(operand).append(" > 0");
+			break;
+		case 1:
+			builder.append("list").append(operand).append(".isEmpty()");
+			break;
+		case 2:
+			builder.append("\"s").append(operand).append("\".equals(name)");
+			break;
+		case 3:
+			builder.append("!flag").append(operand);
+			break;
+		case 4:
+			builder.append("values[").append(operand).append("] != null");
+			break;
+		default:
+			builder.append("count(").append(operand).append(", 'x') < 10");
+		}
+	}
+
+	/**
+	 * Builds a condition
+	 *
+	 * @param operands The count of the operands joined by '&&' and '||'
+	 * @param depth    The nesting depth of the parenthesized groups
+	 * @return The condition
+	 */
+	public static String getCondition(int operands, int depth) {
+
+		StringBuilder builder = new StringBuilder(operands * 24);
+		int groups = Math.min(depth, operands - 1);
+		int openGroups = 0;
+		for (int operand = 0; operand < operands; operand++) {
+			if (operand > 0) {
+				builder.append(operand % 2 == 0 ? " && " : " || ");
+			}
+			if (operand > 0 && openGroups < groups) {
+				builder.append('(');
+				openGroups++;
+			}
+			appendOperand(builder, operand);
+		}
+		while (openGroups-- > 0) {
+			builder.append(')');
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Appends the indented line
+	 */
+	private static void appendLine(StringBuilder builder, int indent, String line) {
+
+		for (int i = 0; i < indent; i++) {
+			builder.append(INDENT);
+		}
+		builder.append(line).append('\n');
+	}
+
+	/**
+	 * Appends a control statement, nesting the next ones into its body. The kind
+	 * of the statement rotates through if-else if-else, for, while and do-while.
+	 */
+	private static void appendStatement(StringBuilder builder, int indent, int depth, String condition, int kind) {
+
+		switch (kind % 4) {
+		case 0:
+			appendLine(builder, indent, "if (" + condition + ") {");
+			appendBody(builder, indent + 1, depth - 1, condition, kind + 1);
+			appendLine(builder, indent, "} else if (" + condition + ") {");
+			appendLine(builder, indent + 1, "count--;");
+			appendLine(builder, indent, "} else {");
+			appendLine(builder, indent + 1, "count = 0;");
+			appendLine(builder, indent, "}");
+			break;
+		case 1:
+			appendLine(builder, indent, "for (int i = 0; " + condition + "; i++) {");
+			appendBody(builder, indent + 1, depth - 1, condition, kind + 1);
+			appendLine(builder, indent, "}");
+			break;
+		case 2:
+			appendLine(builder, indent, "while (" + condition + ") {");
+			appendBody(builder, indent + 1, depth - 1, condition, kind + 1);
+			appendLine(builder, indent, "}");
+			break;
+		default:
+			appendLine(builder, indent, "do {");
+			appendBody(builder, indent + 1, depth - 1, condition, kind + 1);
+			appendLine(builder, indent, "} while (" + condition + ");");
+		}
+	}
+
+	/**
+	 * Appends the body of a control statement
+	 */
+	private static void appendBody(StringBuilder builder, int indent, int depth, String condition, int kind) {
+
+		appendLine(builder, indent, "count++; // The body");
+		if (depth > 0) {
+			appendStatement(builder, indent, depth, condition, kind);
+		}
+	}
+
+	/**
+	 * Builds a class
+	 *
+	 * @param methods  The count of the methods, i.e. the file size
+	 * @param depth    The nesting depth of the control statements of each method
+	 * @param operands The count of the operands of each condition
+	 * @return The code
+	 */
+	public static String getClassSource(int methods, int depth, int operands) {
+
+		String condition = getCondition(operands, 1);
+		StringBuilder builder = new StringBuilder(methods * depth * (operands * 24 + 128));
+		appendLine(builder, 0, "package com.parse.generated;");
+		appendLine(builder, 0, "");
+		appendLine(builder, 0, "/**");
+		appendLine(builder, 0, " * The generated class");
+		appendLine(builder, 0, " */");
+		appendLine(builder, 0, "public class Generated {");
+		appendLine(builder, 0, "");
+		appendLine(builder, 1, "// The counter");
+		appendLine(builder, 1, "private int count;");
+		for (int method = 0; method < methods; method++) {
+			appendLine(builder, 0, "");
+			appendLine(builder, 1, "/**");
+			appendLine(builder, 1, " * The method " + method);
+			appendLine(builder, 1, " */");
+			appendLine(builder, 1, "public void method" + method + "(String name) {");
+			appendLine(builder, 2, "/* The statements */");
+			appendStatement(builder, 2, depth, condition, method);
+			appendLine(builder, 1, "}");
+		}
+		appendLine(builder, 0, "}");
+		return builder.toString();
+	}
+}
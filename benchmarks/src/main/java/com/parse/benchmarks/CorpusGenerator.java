@@ -0,0 +1,519 @@
+package com.parse.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+/**
+ * The CorpusGenerator. It writes a synthetic java source tree for the scale
+ * and stress runs of the instrumentation. Each file is generated from its own
+ * random sequence derived from the seed and the file index, thus the same
+ * options always produce the same tree, and a larger corpus extends a smaller
+ * one with the same seed. The classes declare the fields and the methods their
+ * statements use, thus the corpus compiles, which is checked on a sample of
+ * the files once generated.
+ */
+public class CorpusGenerator {
+
+	/**
+	 * The count of the files per package
+	 */
+	private static final int FILES_PER_PACKAGE = 100;
+
+	/**
+	 * The count of the variables of each kind, e.g. count0 to count9
+	 */
+	private static final int VARIABLES = 10;
+
+	/**
+	 * The indentation unit
+	 */
+	private static final String INDENT = "    ";
+
+	/**
+	 * The string literals of the noise. They carry the text the header and
+	 * condition scans must not take for code.
+	 */
+	private static final String[] NOISE_LITERALS = { "\"if (a && b) {\"", "\"} else {\"", "\"(x || y\"",
+			"\"say \\\"while (true)\\\"\"", "\"// not a comment\"", "\"/* not a comment */\"", "\"a;b;c\"" };
+
+	/**
+	 * The comments of the noise
+	 */
+	private static final String[] NOISE_COMMENTS = { "// if (a && b) { is a comment", "/* for (;;) { */",
+			"// TODO: check the } else { branch", "/* (unbalanced ( parentheses */" };
+
+	/**
+	 * The random seed
+	 */
+	private long seed = 1;
+
+	/**
+	 * The count of the files
+	 */
+	private int files = 100;
+
+	/**
+	 * The count of the methods per file, i.e. the file size
+	 */
+	private int methods = 20;
+
+	/**
+	 * The count of the statements per block
+	 */
+	private int statements = 4;
+
+	/**
+	 * The percentage of the statements which are control statements
+	 */
+	private int density = 30;
+
+	/**
+	 * The maximum nesting depth of the control statements
+	 */
+	private int depth = 3;
+
+	/**
+	 * The maximum count of the 'else if' branches of an 'if' statement
+	 */
+	private int chain = 2;
+
+	/**
+	 * The maximum count of the terms of a condition
+	 */
+	private int terms = 4;
+
+	/**
+	 * The percentage of the statements which carry string literals or comments
+	 */
+	private int noise = 20;
+
+	/**
+	 * The count of the sample files compiled once generated
+	 */
+	private int checkedFiles = 5;
+
+	/**
+	 * The random sequence of the file being generated
+	 */
+	private Random random;
+
+	/**
+	 * The code of the file being generated
+	 */
+	private StringBuilder codeBuilder;
+
+	/**
+	 * The count of the control statements generated
+	 */
+	private long controlStatementsCount;
+
+	/**
+	 * The count of the lines generated
+	 */
+	private long linesCount;
+
+	/**
+	 * Gets a random number
+	 *
+	 * @param from The minimum
+	 * @param to   The maximum
+	 * @return The number between the minimum and the maximum, inclusive
+	 */
+	private int nextInt(int from, int to) {
+		return to <= from ? from : from + random.nextInt(to - from + 1);
+	}
+
+	/**
+	 * Draws a random event
+	 *
+	 * @param percentage The percentage of chance
+	 * @return If the event happens
+	 */
+	private boolean chance(int percentage) {
+		return random.nextInt(100) < percentage;
+	}
+
+	/**
+	 * Appends the indented line
+	 */
+	private void appendLine(int indent, String line) {
+
+		for (int i = 0; i < indent; i++) {
+			codeBuilder.append(INDENT);
+		}
+		codeBuilder.append(line).append('\n');
+		linesCount++;
+	}
+
+	/**
+	 * Appends a condition operand
+	 */
+	private void appendOperand(StringBuilder builder) {
+
+		int variable = random.nextInt(VARIABLES);
+		switch (random.nextInt(chance(noise) ? 7 : 6)) {
+		case 0:
+			builder.append("count").append(variable).append(" > ").append(random.nextInt(100));
+			break;
+		case 1:
+			builder.append("items").append(variable).append(".isEmpty()");
+			break;
+		case 2:
+			builder.append("!flag").append(variable);
+			break;
+		case 3:
+			builder.append("values[").append(variable).append("] != null");
+			break;
+		case 4:
+			builder.append("check(count").append(variable).append(", 'x')");
+			break;
+		case 5:
+			builder.append("name").append(variable).append(".length() % 2 == 0");
+			break;
+		default:
+			builder.append(NOISE_LITERALS[random.nextInt(NOISE_LITERALS.length)]).append(".equals(name")
+					.append(variable).append(")");
+		}
+	}
+
+	/**
+	 * Builds a condition of random terms, optionally grouped and negated
+	 *
+	 * @return The condition
+	 */
+	private String getCondition() {
+
+		StringBuilder builder = new StringBuilder();
+		int termsCount = nextInt(1, terms);
+		int openGroups = 0;
+		for (int term = 0; term < termsCount; term++) {
+			if (term > 0) {
+				builder.append(random.nextBoolean() ? " && " : " || ");
+			}
+			if (term < termsCount - 1 && chance(25)) {
+				builder.append(chance(20) ? "!(" : "(");
+				openGroups++;
+			}
+			appendOperand(builder);
+			if (openGroups > 0 && chance(40)) {
+				builder.append(')');
+				openGroups--;
+			}
+		}
+		while (openGroups-- > 0) {
+			builder.append(')');
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Appends a simple statement, optionally carrying noise
+	 */
+	private void appendSimpleStatement(int indent) {
+
+		int variable = random.nextInt(VARIABLES);
+		if (chance(noise)) {
+			if (random.nextBoolean()) {
+				appendLine(indent, NOISE_COMMENTS[random.nextInt(NOISE_COMMENTS.length)]);
+			} else {
+				appendLine(indent, "log(" + NOISE_LITERALS[random.nextInt(NOISE_LITERALS.length)] + ");");
+				return;
+			}
+		}
+		switch (random.nextInt(3)) {
+		case 0:
+			appendLine(indent, "count" + variable + "++;");
+			break;
+		case 1:
+			appendLine(indent, "name" + variable + " = name" + variable + ".trim();");
+			break;
+		default:
+			appendLine(indent, "values[" + variable + "] = check(count" + variable + ", 'y');");
+		}
+	}
+
+	/**
+	 * Appends a block of statements
+	 */
+	private void appendBlock(int indent, int remainingDepth) {
+
+		int statementsCount = nextInt(1, statements);
+		for (int statement = 0; statement < statementsCount; statement++) {
+			if (remainingDepth > 0 && chance(density)) {
+				appendControlStatement(indent, remainingDepth);
+			} else {
+				appendSimpleStatement(indent);
+			}
+		}
+	}
+
+	/**
+	 * Appends a control statement, nesting blocks up to the remaining depth
+	 */
+	private void appendControlStatement(int indent, int remainingDepth) {
+
+		controlStatementsCount++;
+		switch (random.nextInt(5)) {
+		case 0:
+			appendLine(indent, "for (int i" + indent + " = 0; " + getCondition() + "; i" + indent + "++) {");
+			appendBlock(indent + 1, remainingDepth - 1);
+			appendLine(indent, "}");
+			break;
+		case 1:
+			appendLine(indent, "while (" + getCondition() + ") {");
+			appendBlock(indent + 1, remainingDepth - 1);
+			appendLine(indent, "}");
+			break;
+		case 2:
+			appendLine(indent, "do {");
+			appendBlock(indent + 1, remainingDepth - 1);
+			appendLine(indent, "} while (" + getCondition() + ");");
+			break;
+		default:
+			appendLine(indent, "if (" + getCondition() + ") {");
+			appendBlock(indent + 1, remainingDepth - 1);
+			int elseIfCount = nextInt(0, chain);
+			for (int elseIf = 0; elseIf < elseIfCount; elseIf++) {
+				controlStatementsCount++;
+				appendLine(indent, "} else if (" + getCondition() + ") {");
+				appendBlock(indent + 1, remainingDepth - 1);
+			}
+			if (random.nextBoolean()) {
+				appendLine(indent, "} else {");
+				appendBlock(indent + 1, remainingDepth - 1);
+			}
+			appendLine(indent, "}");
+		}
+	}
+
+	/**
+	 * Appends the fields read and written by the statements
+	 */
+	private void appendFields() {
+
+		for (int variable = 0; variable < VARIABLES; variable++) {
+			appendLine(1, "private int count" + variable + ";");
+			appendLine(1, "private boolean flag" + variable + ";");
+			appendLine(1, "private String name" + variable + " = \"\";");
+			appendLine(1, "private List<String> items" + variable + " = new ArrayList<>();");
+		}
+		appendLine(1, "private Object[] values = new Object[" + VARIABLES + "];");
+	}
+
+	/**
+	 * Appends the methods called by the statements
+	 */
+	private void appendHelpers() {
+
+		appendLine(0, "");
+		appendLine(1, "private boolean check(int value, char marker) {");
+		appendLine(2, "return value % marker == 0;");
+		appendLine(1, "}");
+		appendLine(0, "");
+		appendLine(1, "private void log(String message) {");
+		appendLine(2, "values[0] = message;");
+		appendLine(1, "}");
+	}
+
+	/**
+	 * Builds the code of a file
+	 *
+	 * @param packageName The package name
+	 * @param className   The class name
+	 * @return The code
+	 */
+	private String getClassSource(String packageName, String className) {
+
+		codeBuilder = new StringBuilder(methods * 1024);
+		appendLine(0, "package " + packageName + ";");
+		appendLine(0, "");
+		appendLine(0, "import java.util.ArrayList;");
+		appendLine(0, "import java.util.List;");
+		appendLine(0, "");
+		appendLine(0, "/**");
+		appendLine(0, " * The generated class " + className);
+		appendLine(0, " */");
+		appendLine(0, "public class " + className + " {");
+		appendLine(0, "");
+		appendFields();
+		appendHelpers();
+		for (int method = 0; method < methods; method++) {
+			appendLine(0, "");
+			appendLine(1, "/**");
+			appendLine(1, " * The method " + method);
+			appendLine(1, " */");
+			appendLine(1, "public void method" + method + "(String name) {");
+			appendBlock(2, depth);
+			appendLine(1, "}");
+		}
+		appendLine(0, "}");
+		return codeBuilder.toString();
+	}
+
+	/**
+	 * Generates the corpus
+	 *
+	 * @param outputPath The output directory
+	 * @return The paths of the sample files to compile
+	 * @throws IOException If a file could not be written
+	 */
+	public List<Path> generate(Path outputPath) throws IOException {
+
+		List<Path> samplePaths = new ArrayList<>();
+		int sampleStep = checkedFiles > 0 ? Math.max(1, files / checkedFiles) : 0;
+		long bytesCount = 0;
+		for (int file = 0; file < files; file++) {
+			random = new Random(seed * 1_000_003L + file);
+			String packageName = String.format("com.generated.p%04d", file / FILES_PER_PACKAGE);
+			String className = String.format("Generated%06d", file);
+			Path packagePath = outputPath.resolve(packageName.replace('.', '/'));
+			Files.createDirectories(packagePath);
+
+			byte[] code = getClassSource(packageName, className).getBytes(StandardCharsets.UTF_8);
+			Path filePath = packagePath.resolve(className + ".java");
+			Files.write(filePath, code);
+			bytesCount += code.length;
+			if (sampleStep > 0 && file % sampleStep == 0 && samplePaths.size() < checkedFiles) {
+				samplePaths.add(filePath);
+			}
+		}
+		System.out.println("Generated " + files + " files, " + linesCount + " lines, " + bytesCount + " bytes, "
+				+ controlStatementsCount + " control statements.");
+		return samplePaths;
+	}
+
+	/**
+	 * Compiles the sample files into a temporary directory, checking the
+	 * generated code is valid java
+	 *
+	 * @param samplePaths The paths of the sample files
+	 * @return If the files compile, or the runtime has no compiler
+	 * @throws IOException If the temporary directory could not be managed
+	 */
+	public static boolean check(List<Path> samplePaths) throws IOException {
+
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler == null) {
+			System.out.println("The runtime has no java compiler, the compile check is skipped.");
+			return true;
+		}
+
+		Path classesPath = Files.createTempDirectory("corpus-check");
+		try {
+			List<String> compilerArgs = new ArrayList<>();
+			compilerArgs.add("-proc:none");
+			compilerArgs.add("-d");
+			compilerArgs.add(classesPath.toString());
+			for (Path samplePath : samplePaths) {
+				compilerArgs.add(samplePath.toString());
+			}
+			return compiler.run(null, null, null, compilerArgs.toArray(new String[0])) == 0;
+		} finally {
+			try (Stream<Path> pathStream = Files.walk(classesPath)) {
+				for (Path path : (Iterable<Path>) pathStream.sorted(Comparator.reverseOrder())::iterator) {
+					Files.delete(path);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Parses the command line options
+	 *
+	 * @param args The command line arguments
+	 * @return The position of the output directory argument, or -1 if the
+	 *         options are invalid
+	 */
+	private int parseOptions(String[] args) {
+
+		int argsCounter = 0;
+		while (argsCounter + 1 < args.length && args[argsCounter].startsWith("--")) {
+			String option = args[argsCounter++];
+			long value;
+			try {
+				value = Long.parseLong(args[argsCounter++]);
+			} catch (NumberFormatException numberFormatException) {
+				return -1;
+			}
+			if ("--seed".equals(option)) {
+				seed = value;
+				continue;
+			}
+			if (value < 0 || value > Integer.MAX_VALUE) {
+				return -1;
+			}
+			switch (option) {
+			case "--files":
+				files = (int) value;
+				break;
+			case "--methods":
+				methods = (int) value;
+				break;
+			case "--statements":
+				statements = (int) value;
+				break;
+			case "--density":
+				density = (int) value;
+				break;
+			case "--depth":
+				depth = (int) value;
+				break;
+			case "--chain":
+				chain = (int) value;
+				break;
+			case "--terms":
+				terms = (int) value;
+				break;
+			case "--noise":
+				noise = (int) value;
+				break;
+			case "--check":
+				checkedFiles = (int) value;
+				break;
+			default:
+				return -1;
+			}
+		}
+		if (terms < 1 || statements < 1 || density > 100 || noise > 100) {
+			return -1;
+		}
+		return argsCounter;
+	}
+
+	public static void main(String[] args) {
+
+		CorpusGenerator generator = new CorpusGenerator();
+		int argsCounter = generator.parseOptions(args);
+		if (argsCounter == -1 || args.length - argsCounter != 1) {
+			System.out.println("Usage: CorpusGenerator [--seed N] [--files N] [--methods N] [--statements N]"
+					+ " [--density PERCENT] [--depth N] [--chain N] [--terms N] [--noise PERCENT] [--check N]"
+					+ " <output-dir>");
+			return;
+		}
+
+		try {
+			List<Path> samplePaths = generator.generate(Paths.get(args[argsCounter]));
+			if (samplePaths.isEmpty()) {
+				return;
+			}
+			if (!check(samplePaths)) {
+				System.out.println("The generated code does not compile.");
+				System.exit(1);
+			}
+			System.out.println("Compiled " + samplePaths.size() + " sample files.");
+		} catch (IOException ioException) {
+			System.out.println("Error generating the corpus. Reason: " + ioException.getLocalizedMessage());
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package com.parse.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.parse.InstrumentationSession;
+import com.parse.models.Engine;
+import com.parse.models.FormatMode;
+import com.parse.models.InstrumentationOptions;
+
+/**
+ * The PipelineBenchmark. It measures the instrumentation of one file end to
+ * end, from reading the source until the output files are written. The cache
+ * is disabled and the source is restored before each invocation, since the
+ * pipeline overwrites it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipelineBenchmark {
+
+	/**
+	 * The count of the methods, i.e. the file size
+	 */
+	@Param({ "10", "100", "1000" })
+	public int methods;
+
+	/**
+	 * The nesting depth of the control statements of each method
+	 */
+	@Param({ "1", "4" })
+	public int depth;
+
+	/**
+	 * The count of the operands of each condition
+	 */
+	@Param({ "4", "16" })
+	public int operands;
+
+	/**
+	 * The instrumentation engine
+	 */
+	@Param({ "indent", "ast" })
+	public String engine;
+
+	/**
+	 * The formatting mode
+	 */
+	@Param({ "full", "single", "none" })
+	public String format;
+
+	/**
+	 * The generated code
+	 */
+	private byte[] code;
+
+	/**
+	 * The working directory
+	 */
+	private Path directory;
+
+	/**
+	 * The input file
+	 */
+	private Path inputFilePath;
+
+	/**
+	 * The instrumentation session
+	 */
+	private InstrumentationSession session;
+
+	/**
+	 * The standard output, silenced while the session reports the progress
+	 */
+	private PrintStream standardOutput;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+
+		code = BenchmarkSources.getClassSource(methods, depth, operands).getBytes(StandardCharsets.UTF_8);
+		directory = Files.createTempDirectory("pipeline-benchmark");
+		inputFilePath = directory.resolve("Generated.java");
+		Path outputPath = Files.createDirectory(directory.resolve("output"));
+
+		InstrumentationOptions options = new InstrumentationOptions();
+		options.setCacheEnabled(false);
+		options.setEngine(Engine.valueOf(engine.toUpperCase()));
+		options.setFormatMode(FormatMode.valueOf(format.toUpperCase()));
+		session = new InstrumentationSession(outputPath, options);
+
+		standardOutput = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+
+			@Override
+			public void write(int b) {
+				// Discarding the progress report
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+				// Discarding the progress report
+			}
+		}));
+	}
+
+	@Setup(Level.Invocation)
+	public void restoreSource() throws IOException {
+		Files.write(inputFilePath, code);
+	}
+
+	@Benchmark
+	public boolean instrument() {
+
+		boolean instrumented = session.instrument(inputFilePath);
+		session.flush();
+		return instrumented;
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+
+		System.setOut(standardOutput);
+		session.close();
+		if (session.getFailedFilesCount() > 0) {
+			throw new IllegalStateException("The generated file failed to instrument.");
+		}
+		try (Stream<Path> paths = Files.walk(directory)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package com.parse.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.parse.models.PredicateInfo;
+import com.parse.models.ProcessedStatementInfo;
+import com.parse.utils.PredicateParser;
+
+/**
+ * The PredicateParserBenchmark. It measures the conversion of a single control
+ * statement through the public entry points of the parser.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PredicateParserBenchmark {
+
+	/**
+	 * The count of the operands of the condition
+	 */
+	@Param({ "2", "8", "32", "128" })
+	public int operands;
+
+	/**
+	 * The nesting depth of the parenthesized groups of the condition
+	 */
+	@Param({ "0", "4" })
+	public int depth;
+
+	/**
+	 * The condition
+	 */
+	private String condition;
+
+	/**
+	 * The 'if' statement
+	 */
+	private String ifStatement;
+
+	/**
+	 * The 'for' statement
+	 */
+	private String forStatement;
+
+	@Setup
+	public void setup() {
+
+		condition = BenchmarkSources.getCondition(operands, depth);
+		ifStatement = "if (" + condition + ") {";
+		forStatement = "for (int i = 0; " + condition + "; i++) {";
+	}
+
+	@Benchmark
+	public PredicateInfo processIfStatement() {
+		return PredicateParser.processIfStatement(ifStatement, new AtomicInteger());
+	}
+
+	@Benchmark
+	public PredicateInfo processForStatement() {
+		return PredicateParser.processForStatement(forStatement, new AtomicInteger());
+	}
+
+	@Benchmark
+	public ProcessedStatementInfo processStatement() {
+		return PredicateParser.processStatement(condition, 0);
+	}
+}
@@ -0,0 +1,104 @@
+package com.parse.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.parse.SourceInstrumenter;
+import com.parse.models.LineTable;
+import com.parse.utils.JavaCanonicalizer;
+import com.parse.utils.JavaLexer;
+
+/**
+ * The SourceBenchmark. It measures the in-memory passes over a whole file: the
+ * comment stripping, the lexing into the line table along with the indentation
+ * lookups, the canonicalization and the instrumentation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SourceBenchmark {
+
+	/**
+	 * The count of the methods, i.e. the file size
+	 */
+	@Param({ "10", "100", "1000" })
+	public int methods;
+
+	/**
+	 * The nesting depth of the control statements of each method
+	 */
+	@Param({ "1", "4", "8" })
+	public int depth;
+
+	/**
+	 * The count of the operands of each condition
+	 */
+	@Param({ "4", "16" })
+	public int operands;
+
+	/**
+	 * The generated code
+	 */
+	private String code;
+
+	/**
+	 * The canonical code, as fed to the instrumenter
+	 */
+	private String canonicalCode;
+
+	/**
+	 * The line table of the canonical code
+	 */
+	private LineTable table;
+
+	@Setup
+	public void setup() {
+
+		code = BenchmarkSources.getClassSource(methods, depth, operands);
+		canonicalCode = JavaCanonicalizer.canonicalize(code);
+		table = JavaLexer.lex(canonicalCode);
+	}
+
+	@Benchmark
+	public String stripComments() {
+		return JavaLexer.stripComments(code);
+	}
+
+	@Benchmark
+	public LineTable lex() {
+		return JavaLexer.lex(canonicalCode);
+	}
+
+	@Benchmark
+	public void getIndentSpaces(Blackhole blackhole) {
+
+		for (int line = 0; line < table.size(); line++) {
+			blackhole.consume(table.getIndentSpaces(line));
+		}
+	}
+
+	@Benchmark
+	public String canonicalize() {
+		return JavaCanonicalizer.canonicalize(code);
+	}
+
+	@Benchmark
+	public String instrument() {
+		return new SourceInstrumenter().instrument(canonicalCode);
+	}
+}
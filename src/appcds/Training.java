@@ -0,0 +1,36 @@
+package com.parse.training;
+
+/**
+ * The training input of the AppCDS archive. It goes through the control
+ * statements the instrumentation rewrites, thus their classes get archived.
+ */
+public class Training {
+
+	public int run(int a, int b, String s) {
+		int total = 0;
+		// A comment with if (a) inside
+		if (a > 0 && b > 0 || s.equals("x&&y")) {
+			total++;
+		} else if ((a < 0 || b < 0) && s != null) {
+			total--;
+			for (int i = 0; i < a && i < 10; i++) {
+				while (b > 0 && total < 100) {
+					b--;
+				}
+			}
+		} else {
+			total = 5;
+		}
+		do {
+			a--;
+		} while (a > 0 && !(b > 1));
+		switch (a) {
+		case 1:
+			total += 2;
+			break;
+		default:
+			total = s.length() > 3 ? 1 : 0;
+		}
+		return total;
+	}
+}
@@ -0,0 +1,398 @@
+package com.parse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.StringUtils;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.compiler.IProblem;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.Block;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.DoStatement;
+import org.eclipse.jdt.core.dom.Expression;
+import org.eclipse.jdt.core.dom.ForStatement;
+import org.eclipse.jdt.core.dom.IfStatement;
+import org.eclipse.jdt.core.dom.LabeledStatement;
+import org.eclipse.jdt.core.dom.Statement;
+import org.eclipse.jdt.core.dom.SwitchStatement;
+import org.eclipse.jdt.core.dom.WhileStatement;
+
+import com.parse.models.PredicateInfo;
+import com.parse.utils.JavaLexer;
+import com.parse.utils.PredicateParser;
+
+/**
+ * The AstInstrumenter. It instruments the control statements of a single
+ * source file, parsing it once into an abstract syntax tree. The rewrites are
+ * collected as text edits and applied in one linear pass, thus the code need
+ * not be formatted before.
+ */
+public class AstInstrumenter extends ASTVisitor implements Instrumenter {
+
+	/**
+	 * The parser options
+	 */
+	private static final Map<String, String> PARSER_OPTIONS;
+
+	static {
+		PARSER_OPTIONS = JavaCore.getOptions();
+		JavaCore.setComplianceOptions(JavaCore.VERSION_13, PARSER_OPTIONS);
+	}
+
+	/**
+	 * The list of predicate information of the file being processed
+	 */
+	private final List<PredicateInfo> predicateInfoList = new ArrayList<>();
+
+	/**
+	 * The predicate counter of the file being processed
+	 */
+	private final AtomicInteger predicateCounter = new AtomicInteger();
+
+	/**
+	 * The text edits
+	 */
+	private final List<Edit> edits = new ArrayList<>();
+
+	/**
+	 * The predicate declarations edit of each if-elseif-else chain, keyed by the
+	 * first if statement of the chain
+	 */
+	private final Map<IfStatement, Edit> chainDeclarations = new HashMap<>();
+
+	/**
+	 * The code being processed
+	 */
+	private String code;
+
+	/**
+	 * The text edit of the code. The edits are ordered by offset. At the same
+	 * offset, the closing edits of the preceding statement come first, then the
+	 * predicate declarations and then the replacements. The closing edits of
+	 * nested statements come before the ones of their parents. A replacement
+	 * emitting a converted statement is anchored to its predicate.
+	 */
+	private static class Edit implements Comparable<Edit> {
+
+		private static final int CLOSING = 0;
+
+		private static final int DECLARATION = 1;
+
+		private static final int REPLACEMENT = 2;
+
+		private final int offset;
+
+		private final int length;
+
+		private final int kind;
+
+		private final int sequence;
+
+		private final List<String> texts = new ArrayList<>();
+
+		private PredicateInfo predicateInfo;
+
+		private int statementOffset;
+
+		private Edit(int offset, int length, int kind, int sequence) {
+			this.offset = offset;
+			this.length = length;
+			this.kind = kind;
+			this.sequence = sequence;
+		}
+
+		@Override
+		public int compareTo(Edit edit) {
+
+			if (offset != edit.offset) {
+				return Integer.compare(offset, edit.offset);
+			}
+			if (kind != edit.kind) {
+				return Integer.compare(kind, edit.kind);
+			}
+			return kind == CLOSING ? Integer.compare(edit.sequence, sequence)
+					: Integer.compare(sequence, edit.sequence);
+		}
+	}
+
+	/**
+	 * Adds a text edit
+	 *
+	 * @param offset The offset
+	 * @param length The length of the replaced text
+	 * @param kind   The edit kind
+	 * @param text   The text
+	 * @return The edit
+	 */
+	private Edit addEdit(int offset, int length, int kind, String text) {
+
+		Edit edit = new Edit(offset, length, kind, edits.size());
+		edit.texts.add(text);
+		edits.add(edit);
+		return edit;
+	}
+
+	/**
+	 * Gets the end offset of the node
+	 */
+	private static int getEnd(ASTNode node) {
+		return node.getStartPosition() + node.getLength();
+	}
+
+	/**
+	 * Gets the code of the node without comments and line breaks
+	 */
+	private String getCode(ASTNode node) {
+		return JavaLexer.stripComments(code.substring(node.getStartPosition(), getEnd(node)));
+	}
+
+	/**
+	 * Checks if the if statement is the else-if of its parent
+	 */
+	private static boolean isElseIf(IfStatement ifStatement) {
+
+		return ifStatement.getParent() instanceof IfStatement
+				&& ((IfStatement) ifStatement.getParent()).getElseStatement() == ifStatement;
+	}
+
+	/**
+	 * Adds the edit declaring the predicates before the statement. A statement
+	 * which is not part of a block gets wrapped into one.
+	 *
+	 * @param statement The statement
+	 * @return The declarations edit
+	 */
+	private Edit addDeclarations(Statement statement) {
+
+		ASTNode target = statement;
+		while (target.getParent() instanceof LabeledStatement) {
+			target = target.getParent();
+		}
+
+		if (target.getParent() instanceof Block || target.getParent() instanceof SwitchStatement) {
+			return addEdit(target.getStartPosition(), 0, Edit.DECLARATION, "");
+		}
+
+		addEdit(getEnd(target), 0, Edit.CLOSING, "}");
+		return addEdit(target.getStartPosition(), 0, Edit.DECLARATION, "{");
+	}
+
+	/**
+	 * Anchors the edit to the predicate whose converted statement it emits
+	 *
+	 * @param edit            The edit
+	 * @param predicateInfo   The predicate info
+	 * @param statementOffset The offset of the converted statement in the edit
+	 *                        text, negative if its start is cut
+	 */
+	private static void anchor(Edit edit, PredicateInfo predicateInfo, int statementOffset) {
+
+		edit.predicateInfo = predicateInfo;
+		edit.statementOffset = statementOffset;
+	}
+
+	/**
+	 * Replaces the statement header, up to and including the opening brace of
+	 * the body, with the converted statement. A body which is not a block gets
+	 * wrapped into one.
+	 *
+	 * @param start         The header start offset
+	 * @param body          The body
+	 * @param predicateInfo The predicate info
+	 * @param prefix        The prefix of the converted statement left out of
+	 *                      the new header
+	 */
+	private void replaceHeader(int start, Statement body, PredicateInfo predicateInfo, String prefix) {
+
+		String newHeader = StringUtils.removeStart(predicateInfo.getText(), prefix);
+		Edit edit;
+		if (body instanceof Block) {
+			edit = addEdit(start, body.getStartPosition() + 1 - start, Edit.REPLACEMENT, newHeader);
+		} else {
+			edit = addEdit(start, body.getStartPosition() - start, Edit.REPLACEMENT, newHeader + " ");
+			addEdit(getEnd(body), 0, Edit.CLOSING, " }");
+		}
+		anchor(edit, predicateInfo, newHeader.length() - predicateInfo.getText().length());
+	}
+
+	/**
+	 * Records the predicate information and declares its predicates
+	 *
+	 * @param predicateInfo The predicate information
+	 * @param statement     The statement
+	 */
+	private void declarePredicates(PredicateInfo predicateInfo, Statement statement) {
+
+		predicateInfoList.add(predicateInfo);
+		addDeclarations(statement).texts.add(predicateInfo.getPredicateInitStatement());
+	}
+
+	@Override
+	public boolean visit(IfStatement node) {
+
+		if (isElseIf(node)) {
+			IfStatement chainStart = node;
+			while (isElseIf(chainStart)) {
+				chainStart = (IfStatement) chainStart.getParent();
+			}
+
+			PredicateInfo predicateInfo = PredicateParser
+					.processElseIfStatement("else if (" + getCode(node.getExpression()) + ")", predicateCounter);
+			if (predicateInfo != null) {
+				predicateInfoList.add(predicateInfo);
+
+				// The else-if predicates are declared in front of the if predicates
+				Edit declarations = chainDeclarations.get(chainStart);
+				declarations.texts.add(declarations.texts.size() - 1, predicateInfo.getPredicateInitStatement());
+				replaceHeader(node.getStartPosition(), node.getThenStatement(), predicateInfo, "else ");
+			}
+		} else {
+			Edit declarations = addDeclarations(node);
+			chainDeclarations.put(node, declarations);
+
+			PredicateInfo predicateInfo = PredicateParser
+					.processIfStatement("if (" + getCode(node.getExpression()) + ")", predicateCounter);
+			if (predicateInfo != null) {
+				predicateInfoList.add(predicateInfo);
+				declarations.texts.add(predicateInfo.getPredicateInitStatement());
+				replaceHeader(node.getStartPosition(), node.getThenStatement(), predicateInfo, "");
+			} else {
+				declarations.texts.add("");
+			}
+		}
+
+		node.getThenStatement().accept(this);
+		if (node.getElseStatement() != null) {
+			node.getElseStatement().accept(this);
+		}
+		return false;
+	}
+
+	@Override
+	public boolean visit(ForStatement node) {
+
+		List<String> initializers = new ArrayList<>();
+		for (Object initializer : node.initializers()) {
+			initializers.add(getCode((Expression) initializer));
+		}
+		List<String> updaters = new ArrayList<>();
+		for (Object updater : node.updaters()) {
+			updaters.add(getCode((Expression) updater));
+		}
+		String condition = node.getExpression() == null ? "" : getCode(node.getExpression());
+
+		PredicateInfo predicateInfo = PredicateParser.processForStatement(StringUtils.join("for (",
+				String.join(", ", initializers), "; ", condition, "; ", String.join(", ", updaters), ")"),
+				predicateCounter);
+		if (predicateInfo != null) {
+			declarePredicates(predicateInfo, node);
+			replaceHeader(node.getStartPosition(), node.getBody(), predicateInfo, "");
+		}
+
+		node.getBody().accept(this);
+		return false;
+	}
+
+	@Override
+	public boolean visit(WhileStatement node) {
+
+		PredicateInfo predicateInfo = PredicateParser
+				.processWhileStatement("while (" + getCode(node.getExpression()) + ")", predicateCounter);
+		if (predicateInfo != null) {
+			declarePredicates(predicateInfo, node);
+			replaceHeader(node.getStartPosition(), node.getBody(), predicateInfo, "");
+		}
+
+		node.getBody().accept(this);
+		return false;
+	}
+
+	@Override
+	public boolean visit(DoStatement node) {
+
+		PredicateInfo predicateInfo = PredicateParser
+				.processDoWhileStatement("} while (" + getCode(node.getExpression()) + ");", predicateCounter);
+		if (predicateInfo != null) {
+			declarePredicates(predicateInfo, node);
+			Statement body = node.getBody();
+			if (body instanceof Block) {
+				anchor(addEdit(getEnd(body) - 1, getEnd(node) - getEnd(body) + 1, Edit.REPLACEMENT,
+						predicateInfo.getText()), predicateInfo, 0);
+			} else {
+				addEdit(body.getStartPosition(), 0, Edit.REPLACEMENT, "{ ");
+				anchor(addEdit(getEnd(body), getEnd(node) - getEnd(body), Edit.REPLACEMENT,
+						" " + predicateInfo.getText()), predicateInfo, 1);
+			}
+		}
+
+		node.getBody().accept(this);
+		return false;
+	}
+
+	/**
+	 * Applies the text edits to the code in one pass. The controls of the
+	 * predicates are relocated into the updated code.
+	 *
+	 * @return The updated code
+	 */
+	private String applyEdits() {
+
+		edits.sort(null);
+		StringBuilder codeBuilder = new StringBuilder(code.length() + edits.size() * 16);
+		List<Edit> anchoredEdits = new ArrayList<>(predicateInfoList.size());
+		int[] anchoredOffsets = new int[predicateInfoList.size()];
+		int counter = 0;
+		for (Edit edit : edits) {
+			codeBuilder.append(code, counter, edit.offset);
+			if (edit.predicateInfo != null) {
+				anchoredOffsets[anchoredEdits.size()] = codeBuilder.length() + edit.statementOffset;
+				anchoredEdits.add(edit);
+			}
+			for (String text : edit.texts) {
+				codeBuilder.append(text);
+			}
+			counter = edit.offset + edit.length;
+		}
+		codeBuilder.append(code, counter, code.length());
+
+		String updatedCode = codeBuilder.toString();
+		for (int i = 0; i < anchoredEdits.size(); i++) {
+			PredicateInfo predicateInfo = anchoredEdits.get(i).predicateInfo;
+			predicateInfo.relocate(updatedCode, anchoredOffsets[i] + predicateInfo.getControlOffset());
+		}
+		return updatedCode;
+	}
+
+	@Override
+	public String instrument(String code) {
+
+		ASTParser parser = ASTParser.newParser(AST.JLS13);
+		parser.setKind(ASTParser.K_COMPILATION_UNIT);
+		parser.setCompilerOptions(PARSER_OPTIONS);
+		parser.setSource(code.toCharArray());
+		CompilationUnit compilationUnit = (CompilationUnit) parser.createAST(null);
+
+		for (IProblem problem : compilationUnit.getProblems()) {
+			if (problem.isError()) {
+				throw new IllegalArgumentException(
+						problem.getSourceLineNumber() + ": error: " + problem.getMessage());
+			}
+		}
+
+		this.code = code;
+		compilationUnit.accept(this);
+		return applyEdits();
+	}
+
+	@Override
+	public List<PredicateInfo> getPredicateInfoList() {
+		return predicateInfoList;
+	}
+}
@@ -0,0 +1,230 @@
+package com.parse;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+/**
+ * The InstrumentationDaemon. It keeps one JVM running and serves the
+ * instrumentation requests of the build steps over a loopback port, thus the
+ * JVM startup, the class loading of the formatters and the JIT warm up are
+ * paid once. A request carries the working directory of the client and the
+ * command line arguments of a run, the relative paths being resolved against
+ * the working directory. The output of the run is streamed back, followed by
+ * the status line. The port is only bound on the loopback address, and a
+ * request must start with the random token the daemon writes into a file only
+ * readable by its user, thus the other local users cannot run requests. The
+ * requests are served one at a time, and a client which does not send its
+ * request in time is dropped, so it cannot hold the daemon.
+ */
+public class InstrumentationDaemon {
+
+	/**
+	 * The request argument stopping the daemon
+	 */
+	public static final String STOP_REQUEST = "--stop";
+
+	/**
+	 * The prefix of the status line ending a response
+	 */
+	private static final String STATUS_PREFIX = "#STATUS ";
+
+	/**
+	 * The status of a request the daemon could not reach
+	 */
+	public static final int STATUS_UNREACHABLE = 3;
+
+	/**
+	 * The status of a request with a wrong token
+	 */
+	public static final int STATUS_UNAUTHORIZED = 4;
+
+	/**
+	 * The time a client gets to send its request, in milliseconds
+	 */
+	private static final int REQUEST_TIMEOUT = 10_000;
+
+	/**
+	 * The size of the token in bytes
+	 */
+	private static final int TOKEN_SIZE = 32;
+
+	private InstrumentationDaemon() {
+		// Its a utility class. Thus instantiation is not allowed.
+	}
+
+	/**
+	 * Gets the path of the token file of the daemon, in the home directory of
+	 * the user
+	 *
+	 * @param port The loopback port
+	 * @return The token file path
+	 */
+	static Path getTokenPath(int port) {
+		return Paths.get(System.getProperty("user.home"), ".control-statement-parser-" + port + ".token");
+	}
+
+	/**
+	 * Writes a new random token into the token file, only readable and writable
+	 * by the user
+	 *
+	 * @param tokenPath The token file path
+	 * @return The token
+	 * @throws IOException If the file could not be written
+	 */
+	private static String writeToken(Path tokenPath) throws IOException {
+
+		byte[] tokenBytes = new byte[TOKEN_SIZE];
+		new SecureRandom().nextBytes(tokenBytes);
+		StringBuilder token = new StringBuilder();
+		for (byte tokenByte : tokenBytes) {
+			token.append(String.format("%02x", tokenByte));
+		}
+
+		// Creating the file with its permissions, so it is never readable by others
+		Files.deleteIfExists(tokenPath);
+		try {
+			Files.createFile(tokenPath,
+					PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+		} catch (UnsupportedOperationException unsupportedOperationException) {
+			Files.createFile(tokenPath);
+		}
+		Files.write(tokenPath, token.toString().getBytes(StandardCharsets.UTF_8));
+		return token.toString();
+	}
+
+	/**
+	 * Serves the requests until a stop request
+	 *
+	 * @param port The loopback port
+	 * @throws IOException If the port could not be bound or the token file
+	 *                     could not be written
+	 */
+	public static void serve(int port) throws IOException {
+
+		PrintStream standardOutput = System.out;
+		Path tokenPath = getTokenPath(port);
+		try (ServerSocket serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+			byte[] token = writeToken(tokenPath).getBytes(StandardCharsets.UTF_8);
+			standardOutput.println("Daemon listening on " + serverSocket.getLocalSocketAddress() + ", token file: "
+					+ tokenPath);
+			int requestsCounter = 0;
+			boolean stopped = false;
+			while (!stopped) {
+				try (Socket socket = serverSocket.accept()) {
+					requestsCounter++;
+					socket.setSoTimeout(REQUEST_TIMEOUT);
+					stopped = handle(socket, token, requestsCounter, standardOutput);
+				} catch (IOException ioException) {
+					standardOutput.println(
+							"Error serving the request. Reason: " + ioException.getLocalizedMessage());
+				}
+			}
+			standardOutput.println("Daemon stopped after " + requestsCounter + " requests.");
+		} finally {
+			Files.deleteIfExists(tokenPath);
+		}
+	}
+
+	/**
+	 * Handles a request, running it with its output sent to the client
+	 *
+	 * @param socket         The client socket
+	 * @param token          The token of the daemon
+	 * @param requestNumber  The request number
+	 * @param standardOutput The standard output of the daemon
+	 * @return If the request stops the daemon
+	 * @throws IOException If the request could not be read in time
+	 */
+	private static boolean handle(Socket socket, byte[] token, int requestNumber, PrintStream standardOutput)
+			throws IOException {
+
+		DataInputStream inputStream = new DataInputStream(socket.getInputStream());
+		PrintStream responseStream = new PrintStream(socket.getOutputStream(), false,
+				StandardCharsets.UTF_8.name());
+		if (!MessageDigest.isEqual(token, inputStream.readUTF().getBytes(StandardCharsets.UTF_8))) {
+			responseStream.println("Invalid daemon token.");
+			responseStream.println(STATUS_PREFIX + STATUS_UNAUTHORIZED);
+			responseStream.flush();
+			standardOutput.println("Request " + requestNumber + " rejected, invalid token.");
+			return false;
+		}
+		Path workingDirectory = Paths.get(inputStream.readUTF());
+		String[] args = new String[inputStream.readInt()];
+		for (int i = 0; i < args.length; i++) {
+			args[i] = inputStream.readUTF();
+		}
+
+		if (args.length == 1 && STOP_REQUEST.equals(args[0])) {
+			responseStream.println("Daemon stopping.");
+			responseStream.println(STATUS_PREFIX + TaskExecutor.STATUS_OK);
+			responseStream.flush();
+			return true;
+		}
+
+		long startTime = System.nanoTime();
+		int status;
+		try {
+			status = TaskExecutor.run(args, workingDirectory, responseStream);
+		} catch (RuntimeException | Error throwable) {
+			responseStream.println("Error running the request. Reason: " + throwable);
+			status = TaskExecutor.STATUS_INVALID_ARGUMENTS;
+		}
+		responseStream.println(STATUS_PREFIX + status);
+		responseStream.flush();
+		standardOutput.println("Request " + requestNumber + " completed with status " + status + " in "
+				+ (System.nanoTime() - startTime) / 1_000_000 + " ms.");
+		return false;
+	}
+
+	/**
+	 * Sends a request to the daemon and prints its output. The token is read
+	 * from the token file of the daemon.
+	 *
+	 * @param port             The loopback port of the daemon
+	 * @param workingDirectory The working directory of the client
+	 * @param args             The command line arguments of the run
+	 * @return The status of the run
+	 */
+	public static int send(int port, Path workingDirectory, String[] args) {
+
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			String token = new String(Files.readAllBytes(getTokenPath(port)), StandardCharsets.UTF_8);
+			DataOutputStream outputStream = new DataOutputStream(socket.getOutputStream());
+			outputStream.writeUTF(token);
+			outputStream.writeUTF(workingDirectory.toString());
+			outputStream.writeInt(args.length);
+			for (String arg : args) {
+				outputStream.writeUTF(arg);
+			}
+			outputStream.flush();
+
+			BufferedReader reader = new BufferedReader(
+					new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.startsWith(STATUS_PREFIX)) {
+					return Integer.parseInt(line.substring(STATUS_PREFIX.length()));
+				}
+				System.out.println(line);
+			}
+			System.out.println("The daemon closed the connection.");
+		} catch (IOException | NumberFormatException exception) {
+			System.out.println("Error reaching the daemon. Reason: " + exception.getLocalizedMessage());
+		}
+		return STATUS_UNREACHABLE;
+	}
+}
@@ -0,0 +1,102 @@
+package com.parse;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+
+import com.parse.models.FileMetrics;
+import com.parse.models.InstrumentationOptions;
+import com.parse.models.InstrumentationTask;
+import com.parse.models.Phase;
+import com.parse.utils.PipelineStage;
+import com.parse.utils.ThreadFactories;
+
+/**
+ * The InstrumentationPipeline. It runs the instrumentation of many files as
+ * stages connected by bounded queues: reading, preparing, instrumenting,
+ * formatting and recording. Each stage has its own worker threads, thus the
+ * disk and the processors work at the same time, and the heavy stages scale
+ * on their own. The reading and the recording wait on the disk, thus they run
+ * on the file threads, virtual ones in the java 21 builds, while the other
+ * stages run on platform threads. The instrumented files are then written by
+ * the writer of the session.
+ */
+public class InstrumentationPipeline {
+
+	/**
+	 * The session
+	 */
+	private final InstrumentationSession session;
+
+	/**
+	 * The stages, in order
+	 */
+	private final List<PipelineStage<InstrumentationTask>> stages = new ArrayList<>();
+
+	public InstrumentationPipeline(InstrumentationSession session) {
+
+		this.session = session;
+		addStage(Phase.READ, session::read);
+		addStage(Phase.PREPARE, session::prepare);
+		addStage(Phase.INSTRUMENT, session::transform);
+		addStage(Phase.FORMAT, session::format);
+		addStage(Phase.RECORD, session::record);
+	}
+
+	/**
+	 * Adds a stage after the previous ones
+	 *
+	 * @param phase The phase the stage runs
+	 * @param work  The work of the stage
+	 */
+	private void addStage(Phase phase, Predicate<InstrumentationTask> work) {
+
+		InstrumentationOptions options = session.getOptions();
+		PipelineStage<InstrumentationTask> stage = new PipelineStage<>(phase.name().toLowerCase(Locale.ROOT),
+				options.getStageThreads(phase), phase == Phase.READ || phase == Phase.RECORD
+						? ThreadFactories.getIoFactory()
+						: ThreadFactories.getPlatformFactory(),
+				options.getQueueCapacity(), work, session::fail);
+		if (!stages.isEmpty()) {
+			stages.get(stages.size() - 1).setNext(stage);
+		}
+		stages.add(stage);
+	}
+
+	/**
+	 * Runs the pipeline over the files, adding the metrics of the stages to the
+	 * report of the session
+	 *
+	 * @param inputFilePaths The input file paths
+	 * @throws InterruptedException If interrupted, after stopping the stages
+	 */
+	public void run(Iterator<Path> inputFilePaths) throws InterruptedException {
+
+		for (PipelineStage<InstrumentationTask> stage : stages) {
+			stage.start();
+		}
+		PipelineStage<InstrumentationTask> firstStage = stages.get(0);
+		try {
+			try {
+				while (inputFilePaths.hasNext()) {
+					firstStage.put(new InstrumentationTask(new FileMetrics(inputFilePaths.next())));
+				}
+			} finally {
+				firstStage.end();
+			}
+			stages.get(stages.size() - 1).await();
+		} catch (InterruptedException interruptedException) {
+			for (PipelineStage<InstrumentationTask> stage : stages) {
+				stage.stop();
+			}
+			throw interruptedException;
+		} finally {
+			for (PipelineStage<InstrumentationTask> stage : stages) {
+				session.getReport().addStageMetrics(stage.getMetrics());
+			}
+		}
+	}
+}
@@ -0,0 +1,644 @@
+package com.parse;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.google.googlejavaformat.java.Formatter;
+import com.google.googlejavaformat.java.FormatterException;
+import com.google.googlejavaformat.java.JavaFormatterOptions;
+import com.google.googlejavaformat.java.JavaFormatterOptions.Style;
+import com.parse.events.Events;
+import com.parse.models.CacheEntry;
+import com.parse.models.Engine;
+import com.parse.models.FileMetrics;
+import com.parse.models.FormatMode;
+import com.parse.models.InstrumentationOptions;
+import com.parse.models.InstrumentationTask;
+import com.parse.models.Phase;
+import com.parse.models.PredicateInfo;
+import com.parse.utils.FormatterPool;
+import com.parse.utils.InstrumentationCache;
+import com.parse.utils.JavaCanonicalizer;
+import com.parse.utils.JavaFormatter;
+import com.parse.utils.OutputWriter;
+import com.parse.utils.PhaseTimer;
+import com.parse.utils.PredicateIndex;
+import com.parse.utils.PredicateRecorder;
+import com.parse.utils.PredicateSourceMap;
+import com.parse.utils.RunReport;
+import com.parse.utils.SourceReader;
+import com.parse.utils.ThreadFactories;
+import com.parse.utils.ToolVersion;
+
+/**
+ * The InstrumentationSession. It holds the state of one instrumentation job:
+ * the formatters, the counters and the collected predicate information. A
+ * session is safe to use from many threads at the same time, and any number
+ * of sessions can run side by side in the same JVM.
+ */
+public class InstrumentationSession implements AutoCloseable {
+
+	/**
+	 * The output path
+	 */
+	private final Path outputPath;
+
+	/**
+	 * The instrumentation options
+	 */
+	private final InstrumentationOptions options;
+
+	/**
+	 * The maximum bytes of the output files waiting to be written
+	 */
+	private static final int MAX_PENDING_WRITE_BYTES = 64 * 1024 * 1024;
+
+	/**
+	 * The incremental cache, or null if it is disabled
+	 */
+	private final InstrumentationCache cache;
+
+	/**
+	 * The holder of the google-java-format formatters. They are shared by all
+	 * the sessions of the JVM. The holder is only loaded once some code gets
+	 * formatted, thus the runs without formatting do not load the formatter
+	 * classes at startup.
+	 */
+	private static class GoogleFormatters {
+
+		private static final FormatterPool<Formatter> POOL = new FormatterPool<>(
+				() -> new Formatter(JavaFormatterOptions.builder().style(Style.GOOGLE).build()));
+	}
+
+	/**
+	 * The holder of the eclipse formatters. The underlying code formatter is
+	 * not thread-safe, thus each instance is confined to one worker thread at a
+	 * time. The holder is only loaded once some code gets formatted, since the
+	 * JDT classes come from signed jars which are slow to open.
+	 */
+	private static class EclipseFormatters {
+
+		private static final FormatterPool<JavaFormatter> POOL = new FormatterPool<>(JavaFormatter::new);
+	}
+
+	/**
+	 * The predicate information collected per input file, keyed by the relative
+	 * path of the file
+	 */
+	private final Map<String, List<PredicateInfo>> predicateInfoMap = new ConcurrentHashMap<>();
+
+	/**
+	 * The processed files counter
+	 */
+	private final AtomicInteger processedFilesCounter = new AtomicInteger();
+
+	/**
+	 * The failed files counter
+	 */
+	private final AtomicInteger failedFilesCounter = new AtomicInteger();
+
+	/**
+	 * The predicates counter
+	 */
+	private final AtomicInteger predicatesCounter = new AtomicInteger();
+
+	/**
+	 * The cache hits counter
+	 */
+	private final AtomicInteger cacheHitsCounter = new AtomicInteger();
+
+	/**
+	 * The report of the run
+	 */
+	private final RunReport report = new RunReport();
+
+	/**
+	 * The writer of the instrumented files and the predicate records
+	 */
+	private final OutputWriter writer;
+
+	/**
+	 * The stream the progress and the errors are reported to
+	 */
+	private final PrintStream console;
+
+	public InstrumentationSession(Path outputPath, InstrumentationOptions options) {
+		this(outputPath, options, System.out);
+	}
+
+	/**
+	 * Creates the session, reporting to the given stream rather than the
+	 * standard output
+	 * 
+	 * @param outputPath The output path
+	 * @param options    The instrumentation options
+	 * @param console    The stream the progress and the errors are reported to
+	 */
+	public InstrumentationSession(Path outputPath, InstrumentationOptions options, PrintStream console) {
+		this.outputPath = outputPath;
+		this.options = options;
+		this.console = console;
+		this.writer = new OutputWriter(MAX_PENDING_WRITE_BYTES, options.getIoThreads(),
+				ThreadFactories.getIoFactory(), console);
+		this.cache = options.isCacheEnabled() ? new InstrumentationCache(outputPath, ToolVersion.get(),
+				options.getOutputSignature(), console) : null;
+	}
+
+	/**
+	 * Marks the file as failed, once
+	 * 
+	 * @param fileMetrics The file metrics
+	 */
+	private void markFailed(FileMetrics fileMetrics) {
+
+		synchronized (fileMetrics) {
+			if (fileMetrics.isFailed()) {
+				return;
+			}
+			fileMetrics.setFailed(true);
+		}
+		failedFilesCounter.incrementAndGet();
+	}
+
+	/**
+	 * Saves the updated code, replacing the input file
+	 * 
+	 * @param code        The code
+	 * @param fileMetrics The file metrics
+	 * @throws InterruptedIOException If interrupted while the writer is behind
+	 */
+	private void saveUpdatedCode(String code, FileMetrics fileMetrics) throws InterruptedIOException {
+		writer.write(fileMetrics.getFilePath(), code.getBytes(Charset.defaultCharset()),
+				() -> markFailed(fileMetrics));
+	}
+
+	/**
+	 * Saves the predicates record into the output directory
+	 * 
+	 * @param predicateRecord The predicates record
+	 * @param fileMetrics     The file metrics
+	 * @throws InterruptedIOException If interrupted while the writer is behind
+	 */
+	private void savePredicateRecord(String predicateRecord, FileMetrics fileMetrics)
+			throws InterruptedIOException {
+		writer.write(PredicateRecorder.getRecordPath(getRelativePath(fileMetrics.getFilePath()), outputPath),
+				predicateRecord.getBytes(Charset.defaultCharset()), () -> markFailed(fileMetrics));
+	}
+
+	/**
+	 * Gets the path of the input file relative to the root directory of the
+	 * options. It names the predicate record and keys the predicates of the
+	 * file.
+	 * 
+	 * @param inputFilePath The input file path
+	 * @return The relative path
+	 */
+	private String getRelativePath(Path inputFilePath) {
+		return PredicateRecorder.getRelativePath(inputFilePath, options.getRootPath());
+	}
+
+	/**
+	 * Formats the code with a pooled eclipse formatter
+	 * 
+	 * @param code The code
+	 * @return The formatted code
+	 */
+	private static String formatEclipse(String code) {
+
+		Object formattingEvent = Events.beginFormatting();
+		JavaFormatter formatter = EclipseFormatters.POOL.acquire();
+		try {
+			return formatter.format(code);
+		} finally {
+			EclipseFormatters.POOL.release(formatter);
+			Events.commitFormatting(formattingEvent, "eclipse", code.length());
+		}
+	}
+
+	/**
+	 * Formats the code with a pooled google-java-format formatter
+	 * 
+	 * @param code The code
+	 * @return The formatted code
+	 * @throws FormatterException If the code could not be parsed
+	 */
+	private static String formatGoogle(String code) throws FormatterException {
+
+		Object formattingEvent = Events.beginFormatting();
+		Formatter formatter = GoogleFormatters.POOL.acquire();
+		try {
+			return formatter.formatSource(code);
+		} finally {
+			GoogleFormatters.POOL.release(formatter);
+			Events.commitFormatting(formattingEvent, "google", code.length());
+		}
+	}
+
+	/**
+	 * Canonicalizes the code in place of the eclipse formatter
+	 * 
+	 * @param code The code
+	 * @return The canonical code
+	 */
+	private static String canonicalize(String code) {
+
+		Object formattingEvent = Events.beginFormatting();
+		String canonicalCode = JavaCanonicalizer.canonicalize(code);
+		Events.commitFormatting(formattingEvent, "canonicalize", code.length());
+		return canonicalCode;
+	}
+
+	/**
+	 * Records the predicate information of the instrumented file
+	 * 
+	 * @param inputFilePath     The input file path
+	 * @param predicateInfoList The list of predicate information
+	 */
+	private void recordPredicateInfo(Path inputFilePath, List<PredicateInfo> predicateInfoList) {
+
+		predicateInfoMap.put(getRelativePath(inputFilePath), Collections.unmodifiableList(predicateInfoList));
+		predicatesCounter.addAndGet(predicateInfoList.size());
+		processedFilesCounter.incrementAndGet();
+	}
+
+	/**
+	 * Restores the instrumentation result of the input file from the cache
+	 * 
+	 * @param fileMetrics The file metrics
+	 * @param cacheEntry  The cache entry
+	 * @throws IOException If interrupted while the writer is behind
+	 */
+	private void restore(FileMetrics fileMetrics, CacheEntry cacheEntry) throws IOException {
+
+		saveUpdatedCode(cacheEntry.getInstrumentedCode(), fileMetrics);
+		savePredicateRecord(
+				PredicateRecorder.getRecord(getRelativePath(fileMetrics.getFilePath()),
+						cacheEntry.getPredicateInfoList()),
+				fileMetrics);
+		recordPredicateInfo(fileMetrics.getFilePath(), cacheEntry.getPredicateInfoList());
+		cacheHitsCounter.incrementAndGet();
+	}
+
+	/**
+	 * Counts the lines of the code
+	 * 
+	 * @param code The code
+	 * @return The lines count
+	 */
+	private static int countLines(String code) {
+
+		int lines = StringUtils.countMatches(code, '\n');
+		return code.isEmpty() || code.charAt(code.length() - 1) == '\n' ? lines : lines + 1;
+	}
+
+	/**
+	 * Completes the file, adding its metrics to the report
+	 * 
+	 * @param task The task
+	 */
+	private void complete(InstrumentationTask task) {
+
+		FileMetrics fileMetrics = task.getFileMetrics();
+		report.add(fileMetrics);
+		Events.commitFileInstrumentation(task.getFileEvent(), fileMetrics, options.getEngine(),
+				options.getFormatMode());
+	}
+
+	/**
+	 * Fails the file. The stages also fail the file on a stack overflow, which
+	 * the parsers and the formatters run into on deeply nested code, rather
+	 * than letting it end the run.
+	 * 
+	 * @param task      The task
+	 * @param throwable The cause
+	 */
+	void fail(InstrumentationTask task, Throwable throwable) {
+
+		markFailed(task.getFileMetrics());
+		String reason = throwable instanceof StackOverflowError ? "The code is nested too deeply."
+				: throwable.getLocalizedMessage();
+		console.println("Error formatting the code. File: " + task.getFileMetrics().getFilePath().toString()
+				+ ", Reason: " + reason);
+		complete(task);
+	}
+
+	/**
+	 * Reads the input file, restoring it from the cache if it is unchanged
+	 * 
+	 * @param task The task
+	 * @return If the file goes on to the next stage
+	 */
+	boolean read(InstrumentationTask task) {
+
+		task.setFileEvent(Events.beginFileInstrumentation());
+		FileMetrics fileMetrics = task.getFileMetrics();
+		Path inputFilePath = fileMetrics.getFilePath();
+		PhaseTimer phaseTimer = new PhaseTimer(fileMetrics);
+		try {
+			console.println("Processing " + inputFilePath.toString());
+			MessageDigest keyDigest = cache != null ? cache.newKeyDigest() : null;
+			String code = SourceReader.read(inputFilePath, keyDigest);
+			fileMetrics.setBytes(Files.size(inputFilePath));
+			fileMetrics.setLines(countLines(code));
+			phaseTimer.lap(Phase.READ);
+
+			// Restoring the unchanged files from the cache
+			if (cache != null) {
+				String cacheKey = InstrumentationCache.getKey(keyDigest);
+				CacheEntry cacheEntry = cache.get(cacheKey);
+				if (cacheEntry != null) {
+					restore(fileMetrics, cacheEntry);
+					fileMetrics.setCached(true);
+					fileMetrics.setPredicates(cacheEntry.getPredicateInfoList().size());
+					phaseTimer.lap(Phase.WRITE);
+					console.println("COMPLETED (cached).");
+					complete(task);
+					return false;
+				}
+				task.setCacheKey(cacheKey);
+			}
+			task.setCode(code);
+			return true;
+		} catch (Exception | StackOverflowError throwable) {
+			fail(task, throwable);
+			return false;
+		}
+	}
+
+	/**
+	 * Prepares the code of the indentation engine, formatting it with the
+	 * eclipse formatter or canonicalizing it
+	 * 
+	 * @param task The task
+	 * @return If the file goes on to the next stage
+	 */
+	boolean prepare(InstrumentationTask task) {
+
+		if (options.getEngine() == Engine.AST) {
+			return true;
+		}
+		PhaseTimer phaseTimer = new PhaseTimer(task.getFileMetrics());
+		try {
+			String code = task.getCode();
+			task.setCode(options.getFormatMode() == FormatMode.FULL ? formatEclipse(code) : canonicalize(code));
+			phaseTimer.lap(Phase.PREPARE);
+			return true;
+		} catch (Exception | StackOverflowError throwable) {
+			fail(task, throwable);
+			return false;
+		}
+	}
+
+	/**
+	 * Instruments the code
+	 * 
+	 * @param task The task
+	 * @return If the file goes on to the next stage
+	 */
+	boolean transform(InstrumentationTask task) {
+
+		PhaseTimer phaseTimer = new PhaseTimer(task.getFileMetrics());
+		try {
+			Instrumenter instrumenter = options.getEngine() == Engine.AST ? new AstInstrumenter()
+					: new SourceInstrumenter();
+			task.setCode(instrumenter.instrument(task.getCode()));
+			task.setPredicateInfoList(instrumenter.getPredicateInfoList());
+			phaseTimer.lap(Phase.INSTRUMENT);
+			return true;
+		} catch (Exception | StackOverflowError throwable) {
+			fail(task, throwable);
+			return false;
+		}
+	}
+
+	/**
+	 * Formats the instrumented code with google-java-format, unless the
+	 * formatting mode leaves it as is
+	 * 
+	 * @param task The task
+	 * @return If the file goes on to the next stage
+	 */
+	boolean format(InstrumentationTask task) {
+
+		if (options.getFormatMode() == FormatMode.NONE) {
+			return true;
+		}
+		PhaseTimer phaseTimer = new PhaseTimer(task.getFileMetrics());
+		try {
+			task.setCode(formatGoogle(task.getCode()));
+			phaseTimer.lap(Phase.FORMAT);
+			return true;
+		} catch (Exception | StackOverflowError throwable) {
+			fail(task, throwable);
+			return false;
+		}
+	}
+
+	/**
+	 * Saves the instrumented code, creates the predicates file and caches the
+	 * result. It completes the file.
+	 * 
+	 * @param task The task
+	 * @return If the file got recorded
+	 */
+	boolean record(InstrumentationTask task) {
+
+		FileMetrics fileMetrics = task.getFileMetrics();
+		PhaseTimer phaseTimer = new PhaseTimer(fileMetrics);
+		try {
+			// Saving the updated code
+			String formattedUpdatedCode = task.getCode();
+			saveUpdatedCode(formattedUpdatedCode, fileMetrics);
+			phaseTimer.lap(Phase.WRITE);
+
+			// Creating the predicates file
+			Object recordEvent = Events.beginPredicateRecord();
+			List<PredicateInfo> predicateInfoList = task.getPredicateInfoList();
+			new PredicateSourceMap(predicateInfoList).locate(formattedUpdatedCode);
+			String relativePath = getRelativePath(fileMetrics.getFilePath());
+			String predicateRecord = PredicateRecorder.getRecord(relativePath, predicateInfoList);
+			savePredicateRecord(predicateRecord, fileMetrics);
+			PredicateRecorder.shareControls(predicateInfoList);
+			Events.commitPredicateRecord(recordEvent, predicateInfoList.size(), predicateRecord.length());
+			recordPredicateInfo(fileMetrics.getFilePath(), predicateInfoList);
+			fileMetrics.setPredicates(predicateInfoList.size());
+			phaseTimer.lap(Phase.RECORD);
+
+			if (cache != null) {
+				cache.put(task.getCacheKey(), relativePath,
+						new CacheEntry(formattedUpdatedCode, predicateInfoList));
+				phaseTimer.lap(Phase.WRITE);
+			}
+			console.println("COMPLETED.");
+			complete(task);
+			return true;
+		} catch (Exception | StackOverflowError throwable) {
+			fail(task, throwable);
+			return false;
+		}
+	}
+
+	/**
+	 * Instruments the input file, running the stages one after another on the
+	 * calling thread
+	 * 
+	 * @param inputFilePath The input file path
+	 * @return If the file got instrumented successfully
+	 */
+	public boolean instrument(Path inputFilePath) {
+
+		InstrumentationTask task = new InstrumentationTask(new FileMetrics(inputFilePath));
+		if (read(task) && prepare(task) && transform(task) && format(task)) {
+			record(task);
+		}
+		return !task.getFileMetrics().isFailed();
+	}
+
+	/**
+	 * Instruments the input files through the staged pipeline. The files are
+	 * taken from the stream as the pipeline makes room for them.
+	 * 
+	 * @param inputFilePaths The input file paths
+	 */
+	public void instrument(Stream<Path> inputFilePaths) {
+
+		try {
+			new InstrumentationPipeline(this).run(inputFilePaths.iterator());
+		} catch (InterruptedException interruptedException) {
+			Thread.currentThread().interrupt();
+			console.println("Interrupted while processing the files.");
+		}
+	}
+
+	/**
+	 * Instruments the input files through the staged pipeline
+	 * 
+	 * @param inputFilePaths The input file paths
+	 */
+	public void instrument(List<Path> inputFilePaths) {
+		instrument(inputFilePaths.stream());
+	}
+
+	/**
+	 * Writes the binary index of the predicates of all the files instrumented by
+	 * the session into the output directory. The files are keyed by their
+	 * relative path. The files of the existing index which the session did not
+	 * instrument are kept, unless they were under the input path and no longer
+	 * exist.
+	 * 
+	 * @param inputPath The input file or directory of the run
+	 */
+	public void writePredicateIndex(Path inputPath) {
+
+		Path indexPath = outputPath.resolve(PredicateIndex.FILE_NAME);
+		PredicateIndex previousIndex = null;
+		if (Files.exists(indexPath)) {
+			try {
+				previousIndex = new PredicateIndex(indexPath);
+			} catch (IOException ioException) {
+				console.println("Error reading the predicate index, it gets replaced. File: " + indexPath.toString()
+						+ ", Reason: " + ioException.getLocalizedMessage());
+			}
+		}
+		try {
+			Path rootPath = options.getRootPath() != null ? options.getRootPath().toAbsolutePath().normalize() : null;
+			Path absoluteInputPath = inputPath.toAbsolutePath().normalize();
+			Predicate<String> previousFileFilter = relativePath -> {
+				if (rootPath == null) {
+					return true;
+				}
+				Path filePath = rootPath.resolve(relativePath).normalize();
+				return !filePath.startsWith(absoluteInputPath) || Files.exists(filePath);
+			};
+			writer.write(indexPath, PredicateIndex.build(predicateInfoMap, previousIndex, previousFileFilter), () -> {
+				// The writer reports the error
+			});
+		} catch (IOException ioException) {
+			console.println("Error writing the predicate index. File: " + indexPath.toString() + ", Reason: "
+					+ ioException.getLocalizedMessage());
+		}
+	}
+
+	/**
+	 * Waits until the instrumented files and the predicate records are written
+	 */
+	public void flush() {
+		writer.flush();
+	}
+
+	/**
+	 * Closes the session. It writes the pending output files and persists the
+	 * cache manifest.
+	 */
+	@Override
+	public void close() throws IOException {
+
+		writer.close();
+		if (cache != null) {
+			cache.save();
+		}
+	}
+
+	public Path getOutputPath() {
+		return outputPath;
+	}
+
+	public InstrumentationOptions getOptions() {
+		return options;
+	}
+
+	/**
+	 * Gets the predicate information collected for the input file
+	 * 
+	 * @param inputFilePath The input file path
+	 * @return The list of predicate information, or null if the file is not
+	 *         instrumented by this session
+	 */
+	public List<PredicateInfo> getPredicateInfoList(Path inputFilePath) {
+		return predicateInfoMap.get(getRelativePath(inputFilePath));
+	}
+
+	/**
+	 * Gets the predicate information collected per input file
+	 * 
+	 * @return The unmodifiable view of the predicate information map, keyed by
+	 *         the relative path of the file
+	 */
+	public Map<String, List<PredicateInfo>> getPredicateInfoMap() {
+		return Collections.unmodifiableMap(predicateInfoMap);
+	}
+
+	public int getProcessedFilesCount() {
+		return processedFilesCounter.get();
+	}
+
+	public int getFailedFilesCount() {
+		return failedFilesCounter.get();
+	}
+
+	public int getCacheHitsCount() {
+		return cacheHitsCounter.get();
+	}
+
+	public int getPredicatesCount() {
+		return predicatesCounter.get();
+	}
+
+	public RunReport getReport() {
+		return report;
+	}
+}
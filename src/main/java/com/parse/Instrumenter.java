@@ -0,0 +1,28 @@
+package com.parse;
+
+import java.util.List;
+
+import com.parse.models.PredicateInfo;
+
+/**
+ * The Instrumenter. It instruments the control statements of a single source
+ * file. An instance holds the state of one file, thus it must not be shared
+ * among threads.
+ */
+public interface Instrumenter {
+
+	/**
+	 * Instruments the code
+	 * 
+	 * @param code The code
+	 * @return The instrumented code
+	 */
+	String instrument(String code);
+
+	/**
+	 * Gets the predicate information collected so far
+	 * 
+	 * @return The list of predicate information
+	 */
+	List<PredicateInfo> getPredicateInfoList();
+}
@@ -0,0 +1,503 @@
+package com.parse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.parse.models.LineTable;
+import com.parse.models.PredicateInfo;
+import com.parse.utils.JavaLexer;
+import com.parse.utils.OutputBuilder;
+import com.parse.utils.OutputBuilder.Slot;
+import com.parse.utils.PredicateParser;
+
+/**
+ * The SourceInstrumenter. It instruments the control statements of a single
+ * source file, inferring the block structure from the indentation. Thus the
+ * code must be formatted before.
+ */
+public class SourceInstrumenter implements Instrumenter {
+
+	/**
+	 * The list of predicate information of the file being processed
+	 */
+	private final List<PredicateInfo> predicateInfoList = new ArrayList<>();
+
+	/**
+	 * The predicate counter of the file being processed
+	 */
+	private final AtomicInteger predicateCounter = new AtomicInteger();
+
+	/**
+	 * The line table of the file being processed
+	 */
+	private LineTable table;
+
+	/**
+	 * The output of the file being processed
+	 */
+	private OutputBuilder output;
+
+	/**
+	 * The nesting depth of the block being processed
+	 */
+	private int depth;
+
+	/**
+	 * Checks if the line continues the statement header, i.e. it is blank, a
+	 * comment or not yet indented as the statement body
+	 * 
+	 * @param line               The line
+	 * @param indentedSpaceCount The indentation of the statement
+	 * @return If the line belongs to the statement header
+	 */
+	private boolean isHeaderLine(int line, int indentedSpaceCount) {
+
+		return table.isBlank(line) || (!table.startsWithClosingBrace(line)
+				&& (table.isComment(line) || table.getIndent(line) != indentedSpaceCount + 4));
+	}
+
+	/**
+	 * Finds the end of the statement body, i.e. the first non-blank line which
+	 * is not indented deeper than the statement
+	 * 
+	 * @param bodyStart          The body start position
+	 * @param totalLines         Total lines in its parent snippet
+	 * @param indentedSpaceCount The indentation of the statement
+	 * @return The body end position
+	 */
+	private int findBodyEnd(int bodyStart, int totalLines, int indentedSpaceCount) {
+
+		int bodyLineCounter = bodyStart;
+		while (bodyLineCounter < totalLines) {
+			if (!table.isBlank(bodyLineCounter)) {
+				if (!table.isColumnComment(bodyLineCounter)
+						&& table.getIndent(bodyLineCounter) <= indentedSpaceCount) {
+					break;
+				}
+			}
+			bodyLineCounter++;
+		}
+		return bodyLineCounter;
+	}
+
+	/**
+	 * Skips the blank lines of a nested block. The blank lines inside the
+	 * statement bodies are dropped, while the top level ones are kept.
+	 * 
+	 * @param position The position
+	 * @param end      The range end position
+	 * @return The position of the first line to process
+	 */
+	private int skipBlankLines(int position, int end) {
+
+		while (depth > 0 && position < end && table.isBlank(position)) {
+			position++;
+		}
+		return position;
+	}
+
+	/**
+	 * Gets the position of the next line to process
+	 * 
+	 * @param position The position
+	 * @param end      The range end position
+	 * @return The next position
+	 */
+	private int next(int position, int end) {
+		return skipBlankLines(position + 1, end);
+	}
+
+	/**
+	 * Processes the statement body
+	 * 
+	 * @param bodyStart The body start position
+	 * @param bodyEnd   The body end position
+	 */
+	private void processBody(int bodyStart, int bodyEnd) {
+
+		depth++;
+		process(bodyStart, bodyEnd);
+		depth--;
+	}
+
+	/**
+	 * Processes the if statement
+	 * 
+	 * @param startPos
+	 * @param totalLines
+	 * @return
+	 */
+	private int processIf(int startPos, int totalLines) {
+
+		// Getting the current indentation of for statement
+		String spaces = table.getIndentSpaces(startPos);
+		int indentedSpaceCount = table.getIndent(startPos);
+
+		// The statement might be present in multiple lines, thus merging all
+		StringBuilder statementBuilder = new StringBuilder();
+		statementBuilder.append(table.getCode(startPos));
+		startPos = next(startPos, totalLines);
+
+		while (startPos < totalLines && isHeaderLine(startPos, indentedSpaceCount)) {
+			statementBuilder.append(table.getCode(startPos));
+			startPos = next(startPos, totalLines);
+		}
+
+		String statement = statementBuilder.toString();
+		PredicateInfo predicateInfo = PredicateParser.processIfStatement(statement, predicateCounter);
+
+		if (predicateInfo != null) {
+			predicateInfoList.add(predicateInfo);
+			output.append(predicateInfo.getPredicateInitStatement());
+			output.append(predicateInfo);
+		} else {
+			output.append(spaces + StringUtils.stripStart(statement, null));
+			if (!statement.trim().endsWith("{")) {
+				output.append("{");
+			}
+		}
+		int bodyLineCounter = findBodyEnd(startPos, totalLines, indentedSpaceCount);
+		processBody(startPos, bodyLineCounter);
+
+		if (bodyLineCounter < totalLines && table.getIndent(bodyLineCounter) == indentedSpaceCount) {
+			if (table.isClosingBrace(bodyLineCounter)) {
+				output.append("}");
+				return bodyLineCounter;
+			} else {
+				bodyLineCounter--;
+				output.append("}");
+			}
+		} else {
+			bodyLineCounter--;
+			output.append(spaces + "}");
+		}
+
+		return bodyLineCounter;
+	}
+
+	/**
+	 * Processes the else-if statements
+	 * 
+	 * @param totalLines
+	 * @param declarations
+	 * @param bodyLineCounter
+	 * @return
+	 */
+	private int processElseIf(int totalLines, Slot declarations, int bodyLineCounter) {
+
+		while (next(bodyLineCounter, totalLines) < totalLines
+				&& table.getKeyword(next(bodyLineCounter, totalLines)) == LineTable.ELSE_IF) {
+
+			bodyLineCounter = next(bodyLineCounter, totalLines);
+
+			// Getting the current indentation of for statement
+			String spaces = table.getIndentSpaces(bodyLineCounter);
+			int indentedSpaceCount = table.getIndent(bodyLineCounter);
+
+			// The statement might be present in multiple lines, thus merging all
+			StringBuilder statementBuilder = new StringBuilder();
+			statementBuilder.append(table.getCode(bodyLineCounter));
+			bodyLineCounter = next(bodyLineCounter, totalLines);
+
+			while (bodyLineCounter < totalLines && isHeaderLine(bodyLineCounter, indentedSpaceCount)) {
+				statementBuilder.append(table.getCode(bodyLineCounter));
+				bodyLineCounter = next(bodyLineCounter, totalLines);
+			}
+
+			String statement = statementBuilder.toString();
+			PredicateInfo predicateInfo = PredicateParser.processElseIfStatement(statement, predicateCounter);
+
+			if (predicateInfo != null) {
+				predicateInfoList.add(predicateInfo);
+				declarations.add(predicateInfo.getPredicateInitStatement());
+				output.append(predicateInfo);
+			} else {
+				output.append(spaces + StringUtils.stripStart(statement, null));
+				if (!statement.trim().endsWith("{")) {
+					output.append("{");
+				}
+			}
+
+			int bodyStart = bodyLineCounter;
+			bodyLineCounter = findBodyEnd(bodyStart, totalLines, indentedSpaceCount);
+			processBody(bodyStart, bodyLineCounter);
+
+			if (bodyLineCounter < totalLines && table.getIndent(bodyLineCounter) == indentedSpaceCount) {
+				if (table.isClosingBrace(bodyLineCounter)) {
+					output.append("}");
+					return bodyLineCounter;
+				} else {
+					bodyLineCounter--;
+					output.append("}");
+				}
+			} else {
+				bodyLineCounter--;
+				output.append(spaces + "}");
+			}
+		}
+
+		return bodyLineCounter;
+	}
+
+	/**
+	 * Processes else statement
+	 * 
+	 * @param startPos
+	 * @param totalLines
+	 * @param bodyLineCounter
+	 * @return
+	 */
+	private int processElse(int totalLines, int bodyLineCounter) {
+
+		int elseLine = next(bodyLineCounter, totalLines);
+		if (elseLine < totalLines && (table.getKeyword(elseLine) == LineTable.ELSE
+				|| table.getKeyword(elseLine) == LineTable.ELSE_IF)) {
+
+			bodyLineCounter = elseLine;
+			String spaces = table.getIndentSpaces(bodyLineCounter);
+			int indentedSpaceCount = table.getIndent(bodyLineCounter);
+			output.append("else {");
+			bodyLineCounter = next(bodyLineCounter, totalLines);
+
+			int bodyStart = bodyLineCounter;
+			bodyLineCounter = findBodyEnd(bodyStart, totalLines, indentedSpaceCount);
+			processBody(bodyStart, bodyLineCounter);
+
+			if (bodyLineCounter < totalLines && table.getIndent(bodyLineCounter) == indentedSpaceCount) {
+				if (table.isClosingBrace(bodyLineCounter)) {
+					output.append("}");
+					return bodyLineCounter;
+				} else {
+					bodyLineCounter--;
+					output.append("}");
+				}
+			} else {
+				bodyLineCounter--;
+				output.append(spaces + "}");
+			}
+		}
+
+		return bodyLineCounter;
+	}
+
+	/**
+	 * Processes the if-elseif-else statements
+	 * 
+	 * @param startPos   The if-else start position
+	 * @param totalLines Total lines in its parent snippet
+	 * @return The end position of if-else statements
+	 */
+	private int processIfElseifElse(int startPos, int totalLines) {
+
+		// The predicates of the else-if statements are declared in front of the if
+		Slot declarations = output.reserve();
+		int bodyLineCounter = processIf(startPos, totalLines);
+
+		// Parsing the else-if statements, if present
+		if (next(bodyLineCounter, totalLines) < totalLines) {
+			bodyLineCounter = processElseIf(totalLines, declarations, bodyLineCounter);
+		}
+
+		// Parsing the else condition
+		if (next(bodyLineCounter, totalLines) < totalLines) {
+			bodyLineCounter = processElse(totalLines, bodyLineCounter);
+		}
+
+		return bodyLineCounter;
+	}
+
+	/**
+	 * Processes the for loop
+	 * 
+	 * @param startPos   The for loop start position
+	 * @param totalLines Total lines in its parent snippet
+	 * @return The end position of for loop
+	 */
+	private int processForLoop(int startPos, int totalLines) {
+
+		// Getting the current indentation of for statement
+		String spaces = table.getIndentSpaces(startPos);
+		int indentedSpaceCount = table.getIndent(startPos);
+
+		// The statement might be present in multiple lines, thus merging all
+		StringBuilder statementBuilder = new StringBuilder();
+		statementBuilder.append(table.getCode(startPos));
+		startPos = next(startPos, totalLines);
+
+		while (startPos < totalLines && isHeaderLine(startPos, indentedSpaceCount)) {
+			statementBuilder.append(table.getCode(startPos));
+			startPos = next(startPos, totalLines);
+		}
+
+		String statement = statementBuilder.toString();
+		PredicateInfo predicateInfo = PredicateParser.processForStatement(statement, predicateCounter);
+
+		if (predicateInfo != null) {
+			predicateInfoList.add(predicateInfo);
+			output.append(predicateInfo.getPredicateInitStatement());
+			output.append(predicateInfo);
+		} else {
+			output.append(spaces + StringUtils.stripStart(statement, null));
+			if (!statement.trim().endsWith("{")) {
+				output.append("{");
+			}
+		}
+
+		int bodyLineCounter = findBodyEnd(startPos, totalLines, indentedSpaceCount);
+		processBody(startPos, bodyLineCounter);
+
+		if (bodyLineCounter < totalLines
+				&& table.getIndent(bodyLineCounter) == indentedSpaceCount
+				&& table.isClosingBrace(bodyLineCounter)) {
+			output.append(table.getText(bodyLineCounter));
+		} else {
+			bodyLineCounter--;
+			output.append("}");
+		}
+		return bodyLineCounter;
+	}
+
+	/**
+	 * Processes the while loop
+	 * 
+	 * @param startPos   The while loop start position
+	 * @param totalLines Total lines in its parent snippet
+	 * @return The end position of while loop
+	 */
+	private int processWhileLoop(int startPos, int totalLines) {
+
+		// Getting the current indentation of for statement
+		String spaces = table.getIndentSpaces(startPos);
+		int indentedSpaceCount = table.getIndent(startPos);
+
+		// The statement might be present in multiple lines, thus merging all
+		StringBuilder statementBuilder = new StringBuilder();
+		statementBuilder.append(table.getCode(startPos));
+		startPos = next(startPos, totalLines);
+
+		while (startPos < totalLines && isHeaderLine(startPos, indentedSpaceCount)) {
+			statementBuilder.append(table.getCode(startPos));
+			startPos = next(startPos, totalLines);
+		}
+
+		String statement = statementBuilder.toString();
+		PredicateInfo predicateInfo = PredicateParser.processWhileStatement(statement, predicateCounter);
+
+		if (predicateInfo != null) {
+			predicateInfoList.add(predicateInfo);
+			output.append(predicateInfo.getPredicateInitStatement());
+			output.append(predicateInfo);
+		} else {
+			output.append(spaces + StringUtils.stripStart(statement, null));
+			if (!statement.trim().endsWith("{")) {
+				output.append("{");
+			}
+		}
+
+		int bodyLineCounter = findBodyEnd(startPos, totalLines, indentedSpaceCount);
+		processBody(startPos, bodyLineCounter);
+
+		if (bodyLineCounter < totalLines
+				&& table.getIndent(bodyLineCounter) == indentedSpaceCount
+				&& table.isClosingBrace(bodyLineCounter)) {
+			output.append(table.getText(bodyLineCounter));
+		} else {
+			bodyLineCounter--;
+			output.append(spaces + "}");
+		}
+
+		return bodyLineCounter;
+	}
+
+	/**
+	 * Processes the do-while loop
+	 * 
+	 * @param startPos   The do-while loop start position
+	 * @param totalLines Total lines in its parent snippet
+	 * @return The end position of do-while loop
+	 */
+	private int processDoWhileLoop(int startPos, int totalLines) {
+
+		Slot declarations = output.reserve();
+		output.append(table.getText(startPos));
+		int indentedSpaceCount = table.getIndent(startPos);
+
+		int bodyStart = startPos + 1;
+		int bodyEnd = findBodyEnd(bodyStart, totalLines, indentedSpaceCount);
+		if (bodyEnd == totalLines) {
+			throw new IllegalArgumentException("The do-while loop at line " + (startPos + 1) + " is not terminated.");
+		}
+
+		// The statement might be present in multiple lines, thus merging all
+		int bodyLineCounter = bodyEnd;
+		StringBuilder statementBuilder = new StringBuilder();
+		statementBuilder.append(table.getCode(bodyLineCounter));
+		bodyLineCounter = next(bodyLineCounter, totalLines);
+
+		while (bodyLineCounter < totalLines && (table.isBlank(bodyLineCounter)
+				|| (!table.endsWith(bodyLineCounter, ";") && table.isComment(bodyLineCounter)))) {
+			statementBuilder.append(table.getCode(bodyLineCounter));
+			bodyLineCounter = next(bodyLineCounter, totalLines);
+		}
+
+		String statement = statementBuilder.toString();
+		PredicateInfo predicateInfo = PredicateParser.processDoWhileStatement(statement, predicateCounter);
+
+		if (predicateInfo != null) {
+			predicateInfoList.add(predicateInfo);
+			processBody(bodyStart, bodyEnd);
+			declarations.add(predicateInfo.getPredicateInitStatement());
+			output.append(predicateInfo);
+		} else {
+			return startPos;
+		}
+
+		return bodyLineCounter - 1;
+	}
+
+	/**
+	 * Processes the lines of code in the range, appending them to the updated
+	 * lines
+	 * 
+	 * @param from The range start position
+	 * @param to   The range end position
+	 */
+	private void process(int from, int to) {
+
+		for (int i = skipBlankLines(from, to); i < to; i = next(i, to)) {
+			switch (table.getKeyword(i)) {
+			case LineTable.FOR:
+				i = processForLoop(i, to);
+				break;
+			case LineTable.WHILE:
+				i = processWhileLoop(i, to);
+				break;
+			case LineTable.DO:
+				i = processDoWhileLoop(i, to);
+				break;
+			case LineTable.IF:
+				i = processIfElseifElse(i, to);
+				break;
+			default:
+				output.append(table.getText(i));
+			}
+		}
+	}
+
+	@Override
+	public String instrument(String code) {
+
+		table = JavaLexer.lex(code);
+		output = new OutputBuilder(table.size() + table.size() / 4);
+		process(0, table.size());
+		return output.build();
+	}
+
+	@Override
+	public List<PredicateInfo> getPredicateInfoList() {
+		return predicateInfoList;
+	}
+}
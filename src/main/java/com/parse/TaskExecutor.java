@@ -1,687 +1,324 @@
 package com.parse;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.nio.file.FileVisitOption;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 import java.util.stream.Stream;
 
-import org.apache.commons.lang3.StringUtils;
-
-import com.google.googlejavaformat.java.Formatter;
-import com.google.googlejavaformat.java.JavaFormatterOptions;
-import com.google.googlejavaformat.java.JavaFormatterOptions.Style;
-import com.parse.constants.Keywords;
-import com.parse.models.PredicateInfo;
-import com.parse.utils.IndentSpaceParser;
-import com.parse.utils.JavaFormatter;
-import com.parse.utils.PredicateParser;
-import com.parse.utils.PredicateRecorder;
+import com.parse.models.Engine;
+import com.parse.models.FormatMode;
+import com.parse.models.InstrumentationOptions;
+import com.parse.models.Phase;
+import com.parse.utils.RunReport;
 
 /**
  * The controller TaskExecutor. It holds the control of the application.
  */
 public class TaskExecutor {
 
-	private static Formatter gooleFormatter = new Formatter(JavaFormatterOptions.builder().style(Style.GOOGLE).build());
-
-	private static JavaFormatter formatter = new JavaFormatter();
-
 	/**
-	 * The list of predicate information
+	 * The status of a successful run
 	 */
-	private static List<PredicateInfo> predicateInfoList;
+	public static final int STATUS_OK = 0;
 
 	/**
-	 * Removes comment from the line of code
-	 * 
-	 * @param line The line
-	 * @return The stripped line
+	 * The status of a run with invalid arguments
 	 */
-	private static String removeSingleLineComment(String line) {
-
-		char[] chars = line.toCharArray();
-		int counter = 0;
-		int totalChars = chars.length;
-		StringBuilder codeBuilder = new StringBuilder();
-		while (counter < totalChars) {
-			if (chars[counter] == '"') {
-				codeBuilder.append(chars[counter++]);
-				while (counter < totalChars) {
-					codeBuilder.append(chars[counter]);
-					if (chars[counter] == '"' && counter - 1 >= 0 && chars[counter - 1] != '\\') {
-						break;
-					}
-					counter++;
-				}
-			} else if (chars[counter] == '/' && counter + 1 < totalChars && chars[counter + 1] == '/') {
-				break;
-			} else {
-				codeBuilder.append(chars[counter]);
-			}
-			counter++;
-		}
-
-		return codeBuilder.toString();
-	}
+	public static final int STATUS_INVALID_ARGUMENTS = 1;
 
 	/**
-	 * Removes multi-line comments from the code
+	 * The status of a run where some files failed
 	 */
-	private static String removeMultilineComment(String code) {
-
-		char[] chars = code.toCharArray();
-		StringBuilder codeBuilder = new StringBuilder();
-		int counter = 0;
-		int totalChars = chars.length;
-		while (counter < totalChars) {
-			if (chars[counter] == '"') {
-				codeBuilder.append(chars[counter++]);
-				while (counter < totalChars) {
-					codeBuilder.append(chars[counter]);
-					if (chars[counter] == '"' && counter - 1 >= 0 && chars[counter - 1] != '\\') {
-						break;
-					}
-					counter++;
-				}
-			} else if (chars[counter] == '/' && counter + 1 < totalChars && chars[counter + 1] == '*') {
-				while (counter < totalChars) {
-					if (chars[counter] == '"') {
-						while (counter < totalChars) {
-							if (chars[counter] == '"' && counter - 1 >= 0 && chars[counter - 1] != '\\') {
-								break;
-							}
-							counter++;
-						}
-					} else if (chars[counter] == '*' && counter + 1 < totalChars && chars[counter + 1] == '/') {
-						counter++;
-						break;
-					}
-					counter++;
-				}
-			} else {
-				codeBuilder.append(chars[counter]);
-			}
-			counter++;
-		}
-		return codeBuilder.toString();
-	}
+	public static final int STATUS_FAILED_FILES = 2;
 
 	/**
-	 * Processes the if statement
-	 * 
-	 * @param lines
-	 * @param updatedLines
-	 * @param startPos
-	 * @param totalLines
-	 * @return
+	 * The status of a run whose cache manifest could not be saved
 	 */
-	private static int processIf(List<String> lines, List<String> updatedLines, int startPos, int totalLines,
-			Integer pos) {
-
-		// Getting the current indentation of for statement
-		String spaces = IndentSpaceParser.getIndentSpaces(lines.get(startPos));
-		int indentedSpaceCount = IndentSpaceParser.getIndentSpacesCount(lines.get(startPos));
-
-		// The statement might be present in multiple lines, thus merging all
-		StringBuilder statementBuilder = new StringBuilder();
-		statementBuilder.append(removeSingleLineComment(lines.get(startPos)));
-		startPos++;
-
-		if (startPos < totalLines) {
-			String codeline = lines.get(startPos);
-			while (startPos < totalLines && (StringUtils.isBlank(codeline)
-					|| (!codeline.trim().startsWith("}") && (codeline.trim().startsWith("//")
-							|| codeline.trim().startsWith("/*") || codeline.trim().startsWith("*")
-							|| IndentSpaceParser.getIndentSpacesCount(codeline) != indentedSpaceCount + 4)))) {
-				statementBuilder.append(removeSingleLineComment(codeline));
-				startPos++;
-				codeline = lines.get(startPos);
-			}
-		}
-
-		String statement = removeMultilineComment(statementBuilder.toString());
-		PredicateInfo predicateInfo = PredicateParser.processIfStatement(statement);
-
-		if (predicateInfo != null) {
-			predicateInfoList.add(predicateInfo);
-			updatedLines.add(predicateInfo.getPredicateInitStatement());
-			updatedLines.add(predicateInfo.getConvertedStatement());
-		} else {
-			updatedLines.add(spaces + statement);
-			if (!statement.trim().endsWith("{")) {
-				updatedLines.add("{");
-			}
-		}
-		List<String> innerBodyLines = new ArrayList<>();
-		int bodyLineCounter = startPos;
-		while (bodyLineCounter < totalLines) {
-			String line = lines.get(bodyLineCounter);
-			if (StringUtils.isNotBlank(line.trim())) {
-				if (line.startsWith("//") || IndentSpaceParser.getIndentSpacesCount(line) > indentedSpaceCount) {
-					innerBodyLines.add(line);
-				} else {
-					break;
-				}
-			}
-			bodyLineCounter++;
-		}
-
-		updatedLines.addAll(process(innerBodyLines));
-
-		if (bodyLineCounter < totalLines
-				&& IndentSpaceParser.getIndentSpacesCount(lines.get(bodyLineCounter)) == indentedSpaceCount) {
-			String line = lines.get(bodyLineCounter).trim();
-			if (line.matches("}( //.*)?")) {
-				updatedLines.add("}");
-				return bodyLineCounter;
-			} else {
-				bodyLineCounter--;
-				updatedLines.add("}");
-			}
-		} else {
-			bodyLineCounter--;
-			updatedLines.add(spaces + "}");
-		}
-
-		return bodyLineCounter;
-	}
+	public static final int STATUS_CACHE_FAILED = 5;
 
 	/**
-	 * Processes the else-if statements
-	 * 
-	 * @param lines
-	 * @param updatedLines
-	 * @param totalLines
-	 * @param pos
-	 * @param bodyLineCounter
-	 * @return
+	 * The command line option starting the daemon on a loopback port
 	 */
-	private static int processElseIf(List<String> lines, List<String> updatedLines, int totalLines, Integer pos,
-			int bodyLineCounter) {
-
-		String line = lines.get(bodyLineCounter + 1).trim();
-		while (bodyLineCounter + 1 < totalLines
-				&& (line.startsWith(Keywords.ELSE_IF_I) || line.startsWith(Keywords.ELSE_IF_II))) {
-
-			bodyLineCounter++;
-
-			// Getting the current indentation of for statement
-			String spaces = IndentSpaceParser.getIndentSpaces(lines.get(bodyLineCounter));
-			int indentedSpaceCount = IndentSpaceParser.getIndentSpacesCount(lines.get(bodyLineCounter));
-
-			// The statement might be present in multiple lines, thus merging all
-			StringBuilder statementBuilder = new StringBuilder();
-			statementBuilder.append(removeSingleLineComment(lines.get(bodyLineCounter)));
-			bodyLineCounter++;
-
-			if (bodyLineCounter < totalLines) {
-				String codeline = lines.get(bodyLineCounter);
-				while (bodyLineCounter < totalLines && (StringUtils.isEmpty(codeline)
-						|| (!codeline.trim().startsWith("}") && (codeline.trim().startsWith("//")
-								|| StringUtils.isEmpty(codeline.trim()) || codeline.trim().startsWith("/*")
-								|| codeline.trim().startsWith("*")
-								|| IndentSpaceParser.getIndentSpacesCount(codeline) != indentedSpaceCount + 4)))) {
-					statementBuilder.append(removeSingleLineComment(codeline));
-					bodyLineCounter++;
-					codeline = lines.get(bodyLineCounter);
-				}
-			}
-
-			String statement = removeMultilineComment(statementBuilder.toString());
-			PredicateInfo predicateInfo = PredicateParser.processElseIfStatement(statement);
-
-			if (predicateInfo != null) {
-				predicateInfoList.add(predicateInfo);
-				updatedLines.add(pos++, predicateInfo.getPredicateInitStatement());
-				updatedLines.add(predicateInfo.getConvertedStatement());
-			} else {
-				updatedLines.add(spaces + statement);
-				if (!statement.trim().endsWith("{")) {
-					updatedLines.add("{");
-				}
-			}
-
-			List<String> innerBodyLines = new ArrayList<>();
-			while (bodyLineCounter < totalLines) {
-				line = lines.get(bodyLineCounter);
-				if (StringUtils.isNotBlank(line.trim())) {
-					if (line.startsWith("//") || IndentSpaceParser.getIndentSpacesCount(line) > indentedSpaceCount) {
-						innerBodyLines.add(line);
-					} else {
-						break;
-					}
-				}
-				bodyLineCounter++;
-			}
-
-			updatedLines.addAll(process(innerBodyLines));
-
-			if (bodyLineCounter < totalLines
-					&& IndentSpaceParser.getIndentSpacesCount(lines.get(bodyLineCounter)) == indentedSpaceCount) {
-				line = lines.get(bodyLineCounter).trim();
-				if (line.matches("}( //.*)?")) {
-					updatedLines.add("}");
-					return bodyLineCounter;
-				} else {
-					bodyLineCounter--;
-					updatedLines.add("}");
-				}
-			} else {
-				bodyLineCounter--;
-				updatedLines.add(spaces + "}");
-			}
-		}
-
-		return bodyLineCounter;
-	}
+	private static final String DAEMON_OPTION = "--daemon";
 
 	/**
-	 * Processes else statement
-	 * 
-	 * @param lines
-	 * @param updatedLines
-	 * @param startPos
-	 * @param totalLines
-	 * @param pos
-	 * @param bodyLineCounter
-	 * @return
+	 * The command line option sending the run to the daemon on a loopback port
 	 */
-	private static int processElse(List<String> lines, List<String> updatedLines, int totalLines, Integer pos,
-			int bodyLineCounter) {
-
-		String line = lines.get(bodyLineCounter + 1).trim();
-		if (bodyLineCounter + 1 < totalLines
-				&& (line.startsWith(Keywords.ELSE_I) || line.startsWith(Keywords.ELSE_II))) {
-
-			bodyLineCounter++;
-			String spaces = IndentSpaceParser.getIndentSpaces(lines.get(bodyLineCounter));
-			int indentedSpaceCount = IndentSpaceParser.getIndentSpacesCount(lines.get(bodyLineCounter));
-			updatedLines.add("else {");
-			bodyLineCounter++;
-
-			List<String> innerBodyLines = new ArrayList<>();
-
-			while (bodyLineCounter < totalLines) {
-				line = lines.get(bodyLineCounter);
-				if (StringUtils.isNotBlank(line.trim())) {
-					if (line.startsWith("//") || IndentSpaceParser.getIndentSpacesCount(line) > indentedSpaceCount) {
-						innerBodyLines.add(line);
-					} else {
-						break;
-					}
-				}
-				bodyLineCounter++;
-			}
-
-			updatedLines.addAll(process(innerBodyLines));
-
-			if (bodyLineCounter < totalLines
-					&& IndentSpaceParser.getIndentSpacesCount(lines.get(bodyLineCounter)) == indentedSpaceCount) {
-				line = lines.get(bodyLineCounter).trim();
-				if (line.matches("}( //.*)?")) {
-					updatedLines.add("}");
-					return bodyLineCounter;
-				} else {
-					bodyLineCounter--;
-					updatedLines.add("}");
-				}
-			} else {
-				bodyLineCounter--;
-				updatedLines.add(spaces + "}");
-			}
-		}
-
-		return bodyLineCounter;
-	}
+	private static final String CONNECT_OPTION = "--connect";
 
 	/**
-	 * Processes the if-elseif-else statements
-	 * 
-	 * @param lines        The actual lines
-	 * @param updatedLines The updated lines
-	 * @param startPos     The if-else start position
-	 * @param totalLines   Total lines in its parent snippet
-	 * @return The end position of if-else statements
+	 * The command line option for the number of worker threads
 	 */
-	private static int processIfElseifElse(List<String> lines, List<String> updatedLines, int startPos,
-			int totalLines) {
-
-		Integer pos = updatedLines.size();
-		int bodyLineCounter = processIf(lines, updatedLines, startPos, totalLines, pos);
+	private static final String THREADS_OPTION = "--threads";
 
-		// Parsing the else-if statements, if present
-		if (bodyLineCounter + 1 < totalLines) {
-			bodyLineCounter = processElseIf(lines, updatedLines, totalLines, pos, bodyLineCounter);
-		}
-
-		// Parsing the else condition
-		if (bodyLineCounter + 1 < totalLines) {
-			bodyLineCounter = processElse(lines, updatedLines, totalLines, pos, bodyLineCounter);
-		}
+	/**
+	 * The command line option for the number of file reading and writing
+	 * threads
+	 */
+	private static final String IO_THREADS_OPTION = "--io-threads";
 
-		return bodyLineCounter;
-	}
+	/**
+	 * The command line option to disable the incremental cache
+	 */
+	private static final String NO_CACHE_OPTION = "--no-cache";
 
 	/**
-	 * Processes the for loop
-	 * 
-	 * @param lines        The actual lines
-	 * @param updatedLines The updated lines
-	 * @param startPos     The for loop start position
-	 * @param totalLines   Total lines in its parent snippet
-	 * @return The end position of for loop
+	 * The command line option for the instrumentation engine
 	 */
-	private static int processForLoop(List<String> lines, List<String> updatedLines, int startPos, int totalLines) {
-
-		// Getting the current indentation of for statement
-		String spaces = IndentSpaceParser.getIndentSpaces(lines.get(startPos));
-		int indentedSpaceCount = IndentSpaceParser.getIndentSpacesCount(lines.get(startPos));
-
-		// The statement might be present in multiple lines, thus merging all
-		StringBuilder statementBuilder = new StringBuilder();
-		statementBuilder.append(removeSingleLineComment(lines.get(startPos)));
-		startPos++;
-
-		if (startPos < totalLines) {
-			String codeline = lines.get(startPos);
-			while (startPos < totalLines && (StringUtils.isBlank(codeline)
-					|| (!codeline.trim().startsWith("}") && (codeline.trim().startsWith("//")
-							|| codeline.trim().startsWith("/*") || codeline.trim().startsWith("*")
-							|| IndentSpaceParser.getIndentSpacesCount(codeline) != indentedSpaceCount + 4)))) {
-				statementBuilder.append(removeSingleLineComment(codeline));
-				startPos++;
-				codeline = lines.get(startPos);
-			}
-		}
+	private static final String ENGINE_OPTION = "--engine";
 
-		String statement = removeMultilineComment(statementBuilder.toString());
-		PredicateInfo predicateInfo = PredicateParser.processForStatement(statement);
+	/**
+	 * The command line option for the formatting mode
+	 */
+	private static final String FORMAT_OPTION = "--format";
 
-		if (predicateInfo != null) {
-			predicateInfoList.add(predicateInfo);
-			updatedLines.add(predicateInfo.getPredicateInitStatement());
-			updatedLines.add(predicateInfo.getConvertedStatement());
-		} else {
-			updatedLines.add(spaces + statement);
-			if (!statement.trim().endsWith("{")) {
-				updatedLines.add("{");
-			}
-		}
+	/**
+	 * The command line option for the path of the JSON run report
+	 */
+	private static final String REPORT_OPTION = "--report";
 
-		List<String> innerBodyLines = new ArrayList<>();
-		int bodyLineCounter = startPos;
-		while (bodyLineCounter < totalLines) {
-			String line = lines.get(bodyLineCounter);
-			if (StringUtils.isNotBlank(line.trim())) {
-				if (line.startsWith("//") || IndentSpaceParser.getIndentSpacesCount(line) > indentedSpaceCount) {
-					innerBodyLines.add(line);
-				} else {
-					break;
-				}
-			}
-			bodyLineCounter++;
-		}
+	/**
+	 * The command line option for the worker threads per pipeline stage
+	 */
+	private static final String STAGES_OPTION = "--stages";
 
-		updatedLines.addAll(process(innerBodyLines));
+	/**
+	 * The command line option for the capacity of the pipeline queues
+	 */
+	private static final String QUEUE_OPTION = "--queue";
 
-		if (bodyLineCounter < totalLines
-				&& IndentSpaceParser.getIndentSpacesCount(lines.get(bodyLineCounter)) == indentedSpaceCount
-				&& lines.get(bodyLineCounter).trim().matches("}( //.*)?")) {
-			updatedLines.add(lines.get(bodyLineCounter));
-		} else {
-			bodyLineCounter--;
-			updatedLines.add("}");
-		}
-		return bodyLineCounter;
-	}
+	/**
+	 * The command line option for the directory the predicate records are named
+	 * relative to
+	 */
+	private static final String ROOT_OPTION = "--root";
 
 	/**
-	 * Processes the while loop
+	 * Parses the worker threads per pipeline stage, e.g. "prepare=4,format=4"
 	 * 
-	 * @param lines        The actual lines
-	 * @param updatedLines The updated lines
-	 * @param startPos     The while loop start position
-	 * @param totalLines   Total lines in its parent snippet
-	 * @return The end position of while loop
+	 * @param stages  The stages option value
+	 * @param options The options to populate
+	 * @return If the value is valid
 	 */
-	private static int processWhileLoop(List<String> lines, List<String> updatedLines, int startPos, int totalLines) {
-
-		// Getting the current indentation of for statement
-		String spaces = IndentSpaceParser.getIndentSpaces(lines.get(startPos));
-		int indentedSpaceCount = IndentSpaceParser.getIndentSpacesCount(lines.get(startPos));
-
-		// The statement might be present in multiple lines, thus merging all
-		StringBuilder statementBuilder = new StringBuilder();
-		statementBuilder.append(removeSingleLineComment(lines.get(startPos)));
-		startPos++;
-
-		if (startPos < totalLines) {
-			String codeline = lines.get(startPos);
-			while (startPos < totalLines && (StringUtils.isBlank(codeline)
-					|| (!codeline.trim().startsWith("}") && (codeline.trim().startsWith("//")
-							|| codeline.trim().startsWith("/*") || codeline.trim().startsWith("*")
-							|| IndentSpaceParser.getIndentSpacesCount(codeline) != indentedSpaceCount + 4)))) {
-				statementBuilder.append(removeSingleLineComment(codeline));
-				startPos++;
-				codeline = lines.get(startPos);
-			}
-		}
-
-		String statement = removeMultilineComment(statementBuilder.toString());
-		PredicateInfo predicateInfo = PredicateParser.processWhileStatement(statement);
+	private static boolean parseStages(String stages, InstrumentationOptions options) {
 
-		if (predicateInfo != null) {
-			predicateInfoList.add(predicateInfo);
-			updatedLines.add(predicateInfo.getPredicateInitStatement());
-			updatedLines.add(predicateInfo.getConvertedStatement());
-		} else {
-			updatedLines.add(spaces + statement);
-			if (!statement.trim().endsWith("{")) {
-				updatedLines.add("{");
+		for (String stage : stages.split(",")) {
+			int separator = stage.indexOf('=');
+			if (separator == -1) {
+				return false;
 			}
-		}
-
-		List<String> innerBodyLines = new ArrayList<>();
-		int bodyLineCounter = startPos;
-		while (bodyLineCounter < totalLines) {
-			String line = lines.get(bodyLineCounter);
-			if (StringUtils.isNotBlank(line.trim())) {
-				if (line.startsWith("//") || IndentSpaceParser.getIndentSpacesCount(line) > indentedSpaceCount) {
-					innerBodyLines.add(line);
-				} else {
-					break;
+			try {
+				Phase phase = Phase.valueOf(stage.substring(0, separator).trim().toUpperCase());
+				int threads = Integer.parseInt(stage.substring(separator + 1).trim());
+				if (phase == Phase.WRITE || threads < 1) {
+					return false;
 				}
+				options.setStageThreads(phase, threads);
+			} catch (IllegalArgumentException illegalArgumentException) {
+				return false;
 			}
-			bodyLineCounter++;
 		}
-
-		updatedLines.addAll(process(innerBodyLines));
-
-		if (bodyLineCounter < totalLines
-				&& IndentSpaceParser.getIndentSpacesCount(lines.get(bodyLineCounter)) == indentedSpaceCount
-				&& lines.get(bodyLineCounter).trim().matches("}( //.*)?")) {
-			updatedLines.add(lines.get(bodyLineCounter));
-		} else {
-			bodyLineCounter--;
-			updatedLines.add(spaces + "}");
-		}
-
-		return bodyLineCounter;
+		return true;
 	}
 
 	/**
-	 * Processes the do-while loop
+	 * Parses the command line options
 	 * 
-	 * @param lines        The actual lines
-	 * @param updatedLines The updated lines
-	 * @param startPos     The do-while loop start position
-	 * @param totalLines   Total lines in its parent snippet
-	 * @return The end position of do-while loop
+	 * @param args    The command line arguments
+	 * @param options The options to populate
+	 * @return The position of the first positional argument, or -1 if the options
+	 *         are invalid
 	 */
-	private static int processDoWhileLoop(List<String> lines, List<String> updatedLines, int startPos, int totalLines) {
-
-		int pos = updatedLines.size();
-		updatedLines.add(lines.get(startPos));
-		int indentedSpaceCount = IndentSpaceParser.getIndentSpacesCount(lines.get(startPos));
-
-		List<String> innerBodyLines = new ArrayList<>();
-		int bodyLineCounter = startPos + 1;
-		while (bodyLineCounter < totalLines) {
-			String line = lines.get(bodyLineCounter);
-			if (StringUtils.isNotBlank(line.trim())) {
-				if (line.startsWith("//") || IndentSpaceParser.getIndentSpacesCount(line) > indentedSpaceCount) {
-					innerBodyLines.add(line);
-				} else {
-					break;
+	private static int parseOptions(String[] args, InstrumentationOptions options) {
+
+		int argsCounter = 0;
+		while (argsCounter < args.length && args[argsCounter].startsWith("--")) {
+			String option = args[argsCounter++];
+			if (THREADS_OPTION.equals(option) && argsCounter < args.length) {
+				try {
+					options.setThreads(Integer.parseInt(args[argsCounter++]));
+				} catch (NumberFormatException numberFormatException) {
+					return -1;
 				}
-			}
-			bodyLineCounter++;
-		}
-
-		// The statement might be present in multiple lines, thus merging all
-		StringBuilder statementBuilder = new StringBuilder();
-		statementBuilder.append(removeSingleLineComment(lines.get(bodyLineCounter)));
-		bodyLineCounter++;
-
-		if (bodyLineCounter < totalLines) {
-			String codeline = lines.get(bodyLineCounter);
-			while (bodyLineCounter < totalLines && (StringUtils.isBlank(codeline)
-					|| (!codeline.trim().endsWith(";") && (codeline.trim().startsWith("//")
-							|| codeline.trim().startsWith("/*") || codeline.trim().startsWith("*"))))) {
-				statementBuilder.append(removeSingleLineComment(codeline));
-				bodyLineCounter++;
-				codeline = lines.get(bodyLineCounter);
+				if (options.getThreads() < 1) {
+					return -1;
+				}
+			} else if (IO_THREADS_OPTION.equals(option) && argsCounter < args.length) {
+				try {
+					options.setIoThreads(Integer.parseInt(args[argsCounter++]));
+				} catch (NumberFormatException numberFormatException) {
+					return -1;
+				}
+				if (options.getIoThreads() < 1) {
+					return -1;
+				}
+			} else if (NO_CACHE_OPTION.equals(option)) {
+				options.setCacheEnabled(false);
+			} else if (ENGINE_OPTION.equals(option) && argsCounter < args.length) {
+				try {
+					options.setEngine(Engine.valueOf(args[argsCounter++].toUpperCase()));
+				} catch (IllegalArgumentException illegalArgumentException) {
+					return -1;
+				}
+			} else if (FORMAT_OPTION.equals(option) && argsCounter < args.length) {
+				try {
+					options.setFormatMode(FormatMode.valueOf(args[argsCounter++].toUpperCase()));
+				} catch (IllegalArgumentException illegalArgumentException) {
+					return -1;
+				}
+			} else if (REPORT_OPTION.equals(option) && argsCounter < args.length) {
+				options.setReportPath(Paths.get(args[argsCounter++]));
+			} else if (STAGES_OPTION.equals(option) && argsCounter < args.length) {
+				if (!parseStages(args[argsCounter++], options)) {
+					return -1;
+				}
+			} else if (QUEUE_OPTION.equals(option) && argsCounter < args.length) {
+				try {
+					options.setQueueCapacity(Integer.parseInt(args[argsCounter++]));
+				} catch (NumberFormatException numberFormatException) {
+					return -1;
+				}
+				if (options.getQueueCapacity() < 1) {
+					return -1;
+				}
+			} else if (ROOT_OPTION.equals(option) && argsCounter < args.length) {
+				options.setRootPath(Paths.get(args[argsCounter++]));
+			} else {
+				return -1;
 			}
 		}
-
-		String statement = removeMultilineComment(statementBuilder.toString());
-		PredicateInfo predicateInfo = PredicateParser.processDoWhileStatement(statement);
-
-		if (predicateInfo != null) {
-			predicateInfoList.add(predicateInfo);
-			updatedLines.addAll(process(innerBodyLines));
-			updatedLines.add(pos++, predicateInfo.getPredicateInitStatement());
-			updatedLines.add(predicateInfo.getConvertedStatement());
-		} else {
-			return startPos;
-		}
-
-		return bodyLineCounter - 1;
+		return argsCounter;
 	}
 
 	/**
-	 * Processes the lines of code
+	 * Prints the summary of the run and writes the JSON report
 	 * 
-	 * @param lines The lines
-	 * @return The processed lines of code
+	 * @param report     The run report
+	 * @param reportPath The path of the JSON report, or null if it is not written
+	 * @param console    The stream the summary is printed to
 	 */
-	private static List<String> process(List<String> lines) {
-
-		List<String> updatedLines = new ArrayList<>();
-		int totalLines = lines.size();
-
-		for (int i = 0; i < totalLines; i++) {
-			if (lines.get(i).trim().startsWith(Keywords.FOR)) {
-				i = processForLoop(lines, updatedLines, i, totalLines);
-			} else if (lines.get(i).trim().startsWith(Keywords.WHILE)) {
-				i = processWhileLoop(lines, updatedLines, i, totalLines);
-			} else if (lines.get(i).trim().startsWith(Keywords.DO)) {
-				i = processDoWhileLoop(lines, updatedLines, i, totalLines);
-			} else if (lines.get(i).trim().startsWith(Keywords.IF)) {
-				i = processIfElseifElse(lines, updatedLines, i, totalLines);
-			} else {
-				updatedLines.add(lines.get(i));
+	private static void report(RunReport report, Path reportPath, PrintStream console) {
+
+		report.finish();
+		console.print(report.getSummary());
+		if (reportPath != null) {
+			try {
+				report.write(reportPath);
+			} catch (IOException ioException) {
+				console.println("Error writing the run report. Reason: " + ioException.getLocalizedMessage());
 			}
 		}
-		return updatedLines;
 	}
 
 	/**
-	 * Saves the updated code
+	 * Parses the port of the daemon
 	 * 
-	 * @param code     The code
-	 * @param filePath The file path
+	 * @param port The port argument
+	 * @return The port, or -1 if it is invalid
 	 */
-	private static void saveUpdatedCode(String code, Path filePath) {
+	private static int parsePort(String port) {
 
-		try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath.toFile()))) {
-			writer.write(code);
-			writer.flush();
-		} catch (IOException ioException) {
-			System.out.println("Error saving the updated code.");
+		try {
+			int portNumber = Integer.parseInt(port);
+			return portNumber > 0 && portNumber <= 0xFFFF ? portNumber : -1;
+		} catch (NumberFormatException numberFormatException) {
+			return -1;
 		}
 	}
 
 	/**
-	 * Processes the input file path
+	 * Execution starts from here
 	 * 
-	 * @param inputFilePath The input file path
-	 * @param outputPath    The output path
+	 * @param args The command line arguments
 	 */
-	private static void processPath(Path inputFilePath, Path outputPath) {
+	public static void main(String[] args) {
 
-		try {
-			System.out.println("Processing " + inputFilePath.toString());
-			String formattedJava = formatter.format(new String(Files.readAllBytes(inputFilePath)));
-			predicateInfoList = new ArrayList<>();
-			List<String> updatedLines = process(Arrays.asList(formattedJava.split("\n")));
-
-			// Saving the updated code
-			StringBuilder codeBuilder = new StringBuilder();
-			for (String line : updatedLines) {
-				codeBuilder.append(line);
-				codeBuilder.append("\n");
+		// Running the daemon, or sending the run to it
+		if (args.length >= 2 && (DAEMON_OPTION.equals(args[0]) || CONNECT_OPTION.equals(args[0]))) {
+			int port = parsePort(args[1]);
+			if (port == -1 || DAEMON_OPTION.equals(args[0]) && args.length != 2) {
+				System.out.println("Invalid arguments!");
+				System.exit(STATUS_INVALID_ARGUMENTS);
 			}
-			String formattedUpdatedCode = gooleFormatter.formatSource(codeBuilder.toString());
-			saveUpdatedCode(formattedUpdatedCode, inputFilePath);
-
-			// Creating the predicates file
-			PredicateRecorder.create(inputFilePath, outputPath, predicateInfoList);
-			System.out.println("COMPLETED.");
-		} catch (Exception exception) {
-			System.out.println("Error formatting the code. File: " + inputFilePath.toString() + ", Reason: "
-					+ exception.getLocalizedMessage());
+			if (DAEMON_OPTION.equals(args[0])) {
+				try {
+					InstrumentationDaemon.serve(port);
+				} catch (IOException ioException) {
+					System.out.println("Error starting the daemon. Reason: " + ioException.getLocalizedMessage());
+					System.exit(InstrumentationDaemon.STATUS_UNREACHABLE);
+				}
+				return;
+			}
+			System.exit(InstrumentationDaemon.send(port, Paths.get("").toAbsolutePath(),
+					Arrays.copyOfRange(args, 2, args.length)));
 		}
+
+		System.exit(run(args, Paths.get(""), System.out));
 	}
 
 	/**
-	 * Execution starts from here
+	 * Runs the instrumentation
 	 * 
-	 * @param args The command line arguments
+	 * @param args             The command line arguments
+	 * @param workingDirectory The directory the relative paths are resolved
+	 *                         against
+	 * @param console          The stream the progress and the errors are
+	 *                         reported to
+	 * @return The status of the run
 	 */
-	public static void main(String[] args) {
+	static int run(String[] args, Path workingDirectory, PrintStream console) {
+
+		InstrumentationOptions options = new InstrumentationOptions();
+		int argsCounter = parseOptions(args, options);
 
-		if (args.length != 2) {
-			System.out.println("Invalid arguments!");
-			System.exit(1);
+		if (argsCounter == -1 || args.length - argsCounter != 2) {
+			console.println("Invalid arguments!");
+			return STATUS_INVALID_ARGUMENTS;
+		}
+		if (options.getReportPath() != null) {
+			options.setReportPath(workingDirectory.resolve(options.getReportPath()));
 		}
 
-		Path outputPath = Paths.get(args[0]);
+		Path outputPath = workingDirectory.resolve(args[argsCounter]);
 		if (!outputPath.toFile().exists()) {
 			try {
 				Files.createDirectories(outputPath);
 			} catch (IOException ioException) {
-				System.out.println("Error creating the output directory.");
+				console.println("Error creating the output directory.");
 			}
 		}
 
-		Path inputPath = Paths.get(args[1]);
-		if (inputPath.toFile().isDirectory()) {
-			try (Stream<Path> pathStream = Files.walk(inputPath, FileVisitOption.FOLLOW_LINKS)) {
-				pathStream.filter(path -> path.toString().endsWith(".java"))
-						.forEach(path -> processPath(path, outputPath));
-			} catch (IOException e) {
-				System.out.println("Error walking the directory tree");
-			}
+		// Naming the predicate records relative to the input directory, or to the
+		// directory of the input file
+		Path inputPath = workingDirectory.resolve(args[argsCounter + 1]);
+		if (options.getRootPath() != null) {
+			options.setRootPath(workingDirectory.resolve(options.getRootPath()));
+		} else if (inputPath.toFile().isDirectory()) {
+			options.setRootPath(inputPath);
 		} else {
-			processPath(inputPath, outputPath);
+			options.setRootPath(inputPath.toAbsolutePath().getParent());
+		}
+		try (InstrumentationSession session = new InstrumentationSession(outputPath, options, console)) {
+			if (inputPath.toFile().isDirectory()) {
+				try (Stream<Path> pathStream = Files.walk(inputPath, FileVisitOption.FOLLOW_LINKS)) {
+					session.instrument(pathStream.filter(path -> path.toString().endsWith(".java")));
+				} catch (IOException e) {
+					console.println("Error walking the directory tree");
+				}
+			} else {
+				session.instrument(inputPath);
+			}
+			session.writePredicateIndex(inputPath);
+			session.flush();
+			report(session.getReport(), options.getReportPath(), console);
+			return session.getFailedFilesCount() > 0 ? STATUS_FAILED_FILES : STATUS_OK;
+		} catch (IOException ioException) {
+			console.println("Error saving the cache manifest. Reason: " + ioException.getLocalizedMessage());
+			return STATUS_CACHE_FAILED;
 		}
 	}
 }
@@ -0,0 +1,79 @@
+package com.parse.events;
+
+import com.parse.models.Engine;
+import com.parse.models.FileMetrics;
+import com.parse.models.FormatMode;
+
+/**
+ * The EventRecorder. It begins and commits the flight recorder events of the
+ * instrumentation. The implementation is built against java 11, apart from the
+ * java 8 code, thus the events are passed around as plain objects.
+ */
+public interface EventRecorder {
+
+	/**
+	 * Begins the instrumentation of a file
+	 *
+	 * @return The event, or null if the flight recorder is not running
+	 */
+	Object beginFileInstrumentation();
+
+	/**
+	 * Commits the instrumentation of a file
+	 *
+	 * @param event       The event
+	 * @param fileMetrics The file metrics
+	 * @param engine      The instrumentation engine
+	 * @param formatMode  The formatting mode
+	 */
+	void commitFileInstrumentation(Object event, FileMetrics fileMetrics, Engine engine, FormatMode formatMode);
+
+	/**
+	 * Begins a formatting pass
+	 *
+	 * @return The event, or null if the flight recorder is not running
+	 */
+	Object beginFormatting();
+
+	/**
+	 * Commits a formatting pass
+	 *
+	 * @param event  The event
+	 * @param pass   The formatting pass
+	 * @param length The length of the code
+	 */
+	void commitFormatting(Object event, String pass, int length);
+
+	/**
+	 * Begins the rewrite of a control statement
+	 *
+	 * @return The event, or null if the flight recorder is not running
+	 */
+	Object beginStatementRewrite();
+
+	/**
+	 * Commits the rewrite of a control statement
+	 *
+	 * @param event         The event
+	 * @param statementType The statement type
+	 * @param condition     The condition
+	 * @param predicates    The count of the predicates of the condition
+	 */
+	void commitStatementRewrite(Object event, String statementType, String condition, int predicates);
+
+	/**
+	 * Begins the recording of the predicates of a file
+	 *
+	 * @return The event, or null if the flight recorder is not running
+	 */
+	Object beginPredicateRecord();
+
+	/**
+	 * Commits the recording of the predicates of a file
+	 *
+	 * @param event        The event
+	 * @param predicates   The predicates count
+	 * @param recordLength The length of the predicates record
+	 */
+	void commitPredicateRecord(Object event, int predicates, int recordLength);
+}
@@ -0,0 +1,146 @@
+package com.parse.events;
+
+import com.parse.models.Engine;
+import com.parse.models.FileMetrics;
+import com.parse.models.FormatMode;
+
+/**
+ * The utility class Events. It begins and commits the flight recorder events
+ * of the instrumentation. The events are recorded by an {@link EventRecorder}
+ * implementation built against java 11 and loaded reflectively, thus the tool
+ * still runs on java 8, without the events. Begin returns null
+ * if the events are not supported or no recording is running, and commit
+ * ignores it.
+ */
+public class Events {
+
+	/**
+	 * The class name of the flight recorder implementation
+	 */
+	private static final String RECORDER_CLASS = "com.parse.events.FlightRecorderEvents";
+
+	/**
+	 * The recorder, or null if the runtime does not provide the flight recorder
+	 * API
+	 */
+	private static final EventRecorder RECORDER = loadRecorder();
+
+	/**
+	 * If the runtime provides the flight recorder API
+	 */
+	public static final boolean SUPPORTED = RECORDER != null;
+
+	private Events() {
+		// Its a utility class. Thus instantiation is not allowed.
+	}
+
+	/**
+	 * Loads the flight recorder implementation
+	 */
+	private static EventRecorder loadRecorder() {
+
+		try {
+			Class.forName("jdk.jfr.FlightRecorder");
+			return Class.forName(RECORDER_CLASS).asSubclass(EventRecorder.class).getDeclaredConstructor()
+					.newInstance();
+		} catch (ReflectiveOperationException | LinkageError exception) {
+			return null;
+		}
+	}
+
+	/**
+	 * Begins the instrumentation of a file
+	 *
+	 * @return The event, or null if the flight recorder is not running
+	 */
+	public static Object beginFileInstrumentation() {
+		return RECORDER != null ? RECORDER.beginFileInstrumentation() : null;
+	}
+
+	/**
+	 * Commits the instrumentation of a file
+	 *
+	 * @param event       The event, or null
+	 * @param fileMetrics The file metrics
+	 * @param engine      The instrumentation engine
+	 * @param formatMode  The formatting mode
+	 */
+	public static void commitFileInstrumentation(Object event, FileMetrics fileMetrics, Engine engine,
+			FormatMode formatMode) {
+
+		if (event != null) {
+			RECORDER.commitFileInstrumentation(event, fileMetrics, engine, formatMode);
+		}
+	}
+
+	/**
+	 * Begins a formatting pass
+	 *
+	 * @return The event, or null if the flight recorder is not running
+	 */
+	public static Object beginFormatting() {
+		return RECORDER != null ? RECORDER.beginFormatting() : null;
+	}
+
+	/**
+	 * Commits a formatting pass
+	 *
+	 * @param event  The event, or null
+	 * @param pass   The formatting pass
+	 * @param length The length of the code
+	 */
+	public static void commitFormatting(Object event, String pass, int length) {
+
+		if (event != null) {
+			RECORDER.commitFormatting(event, pass, length);
+		}
+	}
+
+	/**
+	 * Begins the rewrite of a control statement
+	 *
+	 * @return The event, or null if the flight recorder is not running
+	 */
+	public static Object beginStatementRewrite() {
+		return RECORDER != null ? RECORDER.beginStatementRewrite() : null;
+	}
+
+	/**
+	 * Commits the rewrite of a control statement
+	 *
+	 * @param event         The event, or null
+	 * @param statementType The statement type
+	 * @param condition     The condition
+	 * @param predicates    The count of the predicates of the condition
+	 */
+	public static void commitStatementRewrite(Object event, String statementType, String condition,
+			int predicates) {
+
+		if (event != null) {
+			RECORDER.commitStatementRewrite(event, statementType, condition, predicates);
+		}
+	}
+
+	/**
+	 * Begins the recording of the predicates of a file
+	 *
+	 * @return The event, or null if the flight recorder is not running
+	 */
+	public static Object beginPredicateRecord() {
+		return RECORDER != null ? RECORDER.beginPredicateRecord() : null;
+	}
+
+	/**
+	 * Commits the recording of the predicates of a file
+	 *
+	 * @param event        The event, or null
+	 * @param predicates   The predicates count
+	 * @param recordLength The length of the predicates record
+	 */
+	public static void commitPredicateRecord(Object event, int predicates, int recordLength) {
+
+		if (event != null) {
+			RECORDER.commitPredicateRecord(event, predicates, recordLength);
+		}
+	}
+}
@@ -0,0 +1,42 @@
+package com.parse.models;
+
+import java.util.List;
+
+/**
+ * The model CacheEntry. It holds the cached instrumentation result of a source
+ * file.
+ */
+public class CacheEntry {
+
+	/**
+	 * The instrumented code
+	 */
+	private String instrumentedCode;
+
+	/**
+	 * The list of predicate information
+	 */
+	private List<PredicateInfo> predicateInfoList;
+
+	public CacheEntry(String instrumentedCode, List<PredicateInfo> predicateInfoList) {
+		super();
+		this.instrumentedCode = instrumentedCode;
+		this.predicateInfoList = predicateInfoList;
+	}
+
+	public String getInstrumentedCode() {
+		return instrumentedCode;
+	}
+
+	public void setInstrumentedCode(String instrumentedCode) {
+		this.instrumentedCode = instrumentedCode;
+	}
+
+	public List<PredicateInfo> getPredicateInfoList() {
+		return predicateInfoList;
+	}
+
+	public void setPredicateInfoList(List<PredicateInfo> predicateInfoList) {
+		this.predicateInfoList = predicateInfoList;
+	}
+}
@@ -0,0 +1,17 @@
+package com.parse.models;
+
+/**
+ * The instrumentation engines
+ */
+public enum Engine {
+
+	/**
+	 * Infers the block structure from the indentation of the pre-formatted code
+	 */
+	INDENT,
+
+	/**
+	 * Parses the code into an abstract syntax tree
+	 */
+	AST;
+}
@@ -0,0 +1,148 @@
+package com.parse.models;
+
+import java.nio.file.Path;
+
+/**
+ * The model FileMetrics. It holds the measurements of the instrumentation of
+ * a file. The times are in nanoseconds and indexed by the phase ordinal, zero
+ * for the phases the file did not go through.
+ */
+public class FileMetrics {
+
+	/**
+	 * The input file path
+	 */
+	private final Path filePath;
+
+	/**
+	 * The wall-clock times of the phases
+	 */
+	private final long[] wallTimes = new long[Phase.values().length];
+
+	/**
+	 * The CPU times of the phases, spent by the worker thread
+	 */
+	private final long[] cpuTimes = new long[Phase.values().length];
+
+	/**
+	 * The size of the source file in bytes
+	 */
+	private long bytes;
+
+	/**
+	 * The lines count of the source file
+	 */
+	private int lines;
+
+	/**
+	 * The predicates count
+	 */
+	private int predicates;
+
+	/**
+	 * If the result got restored from the cache
+	 */
+	private boolean cached;
+
+	/**
+	 * If the instrumentation failed
+	 */
+	private boolean failed;
+
+	public FileMetrics(Path filePath) {
+		this.filePath = filePath;
+	}
+
+	public Path getFilePath() {
+		return filePath;
+	}
+
+	public long getWallTime(Phase phase) {
+		return wallTimes[phase.ordinal()];
+	}
+
+	public long getCpuTime(Phase phase) {
+		return cpuTimes[phase.ordinal()];
+	}
+
+	/**
+	 * Adds the times to the phase
+	 *
+	 * @param phase    The phase
+	 * @param wallTime The wall-clock time
+	 * @param cpuTime  The CPU time
+	 */
+	public void addTime(Phase phase, long wallTime, long cpuTime) {
+
+		wallTimes[phase.ordinal()] += wallTime;
+		cpuTimes[phase.ordinal()] += cpuTime;
+	}
+
+	/**
+	 * Gets the wall-clock time of all the phases
+	 *
+	 * @return The total wall-clock time
+	 */
+	public long getTotalWallTime() {
+
+		long totalWallTime = 0;
+		for (long wallTime : wallTimes) {
+			totalWallTime += wallTime;
+		}
+		return totalWallTime;
+	}
+
+	/**
+	 * Gets the CPU time of all the phases
+	 *
+	 * @return The total CPU time
+	 */
+	public long getTotalCpuTime() {
+
+		long totalCpuTime = 0;
+		for (long cpuTime : cpuTimes) {
+			totalCpuTime += cpuTime;
+		}
+		return totalCpuTime;
+	}
+
+	public long getBytes() {
+		return bytes;
+	}
+
+	public void setBytes(long bytes) {
+		this.bytes = bytes;
+	}
+
+	public int getLines() {
+		return lines;
+	}
+
+	public void setLines(int lines) {
+		this.lines = lines;
+	}
+
+	public int getPredicates() {
+		return predicates;
+	}
+
+	public void setPredicates(int predicates) {
+		this.predicates = predicates;
+	}
+
+	public boolean isCached() {
+		return cached;
+	}
+
+	public void setCached(boolean cached) {
+		this.cached = cached;
+	}
+
+	public boolean isFailed() {
+		return failed;
+	}
+
+	public void setFailed(boolean failed) {
+		this.failed = failed;
+	}
+}
@@ -0,0 +1,25 @@
+package com.parse.models;
+
+/**
+ * The formatting modes of the instrumentation pipeline
+ */
+public enum FormatMode {
+
+	/**
+	 * Formats the code before the instrumentation with the eclipse formatter and
+	 * after it with google-java-format
+	 */
+	FULL,
+
+	/**
+	 * Canonicalizes the code before the instrumentation and formats it after
+	 * with google-java-format
+	 */
+	SINGLE,
+
+	/**
+	 * Canonicalizes the code before the instrumentation and leaves the output
+	 * unformatted
+	 */
+	NONE;
+}
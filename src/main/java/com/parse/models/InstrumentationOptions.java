@@ -0,0 +1,152 @@
+package com.parse.models;
+
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The model InstrumentationOptions. It holds the options of an
+ * instrumentation session.
+ */
+public class InstrumentationOptions {
+
+	/**
+	 * The number of worker threads
+	 */
+	private int threads = 1;
+
+	/**
+	 * The number of file reading and writing threads
+	 */
+	private int ioThreads = 1;
+
+	/**
+	 * If the incremental cache is enabled
+	 */
+	private boolean cacheEnabled = true;
+
+	/**
+	 * The instrumentation engine
+	 */
+	private Engine engine = Engine.INDENT;
+
+	/**
+	 * The formatting mode
+	 */
+	private FormatMode formatMode = FormatMode.FULL;
+
+	/**
+	 * The path of the JSON run report, or null if it is not written
+	 */
+	private Path reportPath;
+
+	/**
+	 * The directory the predicate records are named relative to, or null to
+	 * name them after the file names
+	 */
+	private Path rootPath;
+
+	/**
+	 * The worker threads per pipeline stage, overriding the defaults
+	 */
+	private final Map<Phase, Integer> stageThreads = new EnumMap<>(Phase.class);
+
+	/**
+	 * The capacity of the queue in front of each pipeline stage
+	 */
+	private int queueCapacity = 16;
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	public int getIoThreads() {
+		return ioThreads;
+	}
+
+	public void setIoThreads(int ioThreads) {
+		this.ioThreads = ioThreads;
+	}
+
+	public boolean isCacheEnabled() {
+		return cacheEnabled;
+	}
+
+	public void setCacheEnabled(boolean cacheEnabled) {
+		this.cacheEnabled = cacheEnabled;
+	}
+
+	public Engine getEngine() {
+		return engine;
+	}
+
+	public void setEngine(Engine engine) {
+		this.engine = engine;
+	}
+
+	public FormatMode getFormatMode() {
+		return formatMode;
+	}
+
+	public void setFormatMode(FormatMode formatMode) {
+		this.formatMode = formatMode;
+	}
+
+	public Path getReportPath() {
+		return reportPath;
+	}
+
+	public void setReportPath(Path reportPath) {
+		this.reportPath = reportPath;
+	}
+
+	public Path getRootPath() {
+		return rootPath;
+	}
+
+	public void setRootPath(Path rootPath) {
+		this.rootPath = rootPath;
+	}
+
+	/**
+	 * Gets the worker threads of a pipeline stage. By default the reading and
+	 * the recording run on the file threads, and the other stages on the
+	 * configured number of worker threads.
+	 * 
+	 * @param stage The stage
+	 * @return The count of the worker threads
+	 */
+	public int getStageThreads(Phase stage) {
+
+		Integer configuredThreads = stageThreads.get(stage);
+		if (configuredThreads != null) {
+			return configuredThreads;
+		}
+		return stage == Phase.READ || stage == Phase.RECORD ? ioThreads : threads;
+	}
+
+	public void setStageThreads(Phase stage, int threads) {
+		stageThreads.put(stage, threads);
+	}
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	public void setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * Gets the options affecting the instrumented code
+	 * 
+	 * @return The options signature
+	 */
+	public String getOutputSignature() {
+		return engine + "/" + formatMode;
+	}
+}
@@ -0,0 +1,75 @@
+package com.parse.models;
+
+import java.util.List;
+
+/**
+ * The model InstrumentationTask. It carries a file through the stages of the
+ * instrumentation, holding the code as each stage leaves it.
+ */
+public class InstrumentationTask {
+
+	/**
+	 * The metrics of the file, holding its path
+	 */
+	private final FileMetrics fileMetrics;
+
+	/**
+	 * The flight recorder event of the file, or null
+	 */
+	private Object fileEvent;
+
+	/**
+	 * The cache key, or null if the cache is disabled
+	 */
+	private String cacheKey;
+
+	/**
+	 * The code
+	 */
+	private String code;
+
+	/**
+	 * The list of predicate information, once instrumented
+	 */
+	private List<PredicateInfo> predicateInfoList;
+
+	public InstrumentationTask(FileMetrics fileMetrics) {
+		this.fileMetrics = fileMetrics;
+	}
+
+	public FileMetrics getFileMetrics() {
+		return fileMetrics;
+	}
+
+	public Object getFileEvent() {
+		return fileEvent;
+	}
+
+	public void setFileEvent(Object fileEvent) {
+		this.fileEvent = fileEvent;
+	}
+
+	public String getCacheKey() {
+		return cacheKey;
+	}
+
+	public void setCacheKey(String cacheKey) {
+		this.cacheKey = cacheKey;
+	}
+
+	public String getCode() {
+		return code;
+	}
+
+	public void setCode(String code) {
+		this.code = code;
+	}
+
+	public List<PredicateInfo> getPredicateInfoList() {
+		return predicateInfoList;
+	}
+
+	public void setPredicateInfoList(List<PredicateInfo> predicateInfoList) {
+		this.predicateInfoList = predicateInfoList;
+	}
+}
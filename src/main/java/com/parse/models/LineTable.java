@@ -0,0 +1,302 @@
+package com.parse.models;
+
+import java.util.Arrays;
+
+import com.parse.constants.Keywords;
+
+/**
+ * The model LineTable. It holds the lines of a file along with their metadata,
+ * computed once by the lexer and stored as primitive columns indexed by the
+ * line number.
+ */
+public class LineTable {
+
+	/**
+	 * The line starts with no control statement keyword
+	 */
+	public static final byte NONE = 0;
+
+	/**
+	 * The line starts a for loop
+	 */
+	public static final byte FOR = 1;
+
+	/**
+	 * The line starts a while loop
+	 */
+	public static final byte WHILE = 2;
+
+	/**
+	 * The line starts a do-while loop
+	 */
+	public static final byte DO = 3;
+
+	/**
+	 * The line starts an if statement
+	 */
+	public static final byte IF = 4;
+
+	/**
+	 * The line starts an else-if statement, optionally closing the previous
+	 * block
+	 */
+	public static final byte ELSE_IF = 5;
+
+	/**
+	 * The line starts an else statement, optionally closing the previous block
+	 */
+	public static final byte ELSE = 6;
+
+	/**
+	 * The line is blank
+	 */
+	private static final byte BLANK = 1;
+
+	/**
+	 * The line starts with a comment
+	 */
+	private static final byte COMMENT = 2;
+
+	/**
+	 * The line only closes a block, optionally followed by a line comment
+	 */
+	private static final byte CLOSING_BRACE = 4;
+
+	/**
+	 * The line starts with a closing brace
+	 */
+	private static final byte BRACE_START = 8;
+
+	/**
+	 * The line starts with a line comment in the first column
+	 */
+	private static final byte COLUMN_COMMENT = 16;
+
+	/**
+	 * The line texts
+	 */
+	private String[] texts;
+
+	/**
+	 * The line codes, excluding the comments
+	 */
+	private String[] codes;
+
+	/**
+	 * The indentations, i.e. the count of the leading spaces
+	 */
+	private int[] indents;
+
+	/**
+	 * The offsets of the first non-blank characters
+	 */
+	private int[] starts;
+
+	/**
+	 * The offsets after the last non-blank characters
+	 */
+	private int[] ends;
+
+	/**
+	 * The classification flags
+	 */
+	private byte[] flags;
+
+	/**
+	 * The control statement keyword classes
+	 */
+	private byte[] keywords;
+
+	/**
+	 * The lines count
+	 */
+	private int size;
+
+	public LineTable(int capacity) {
+
+		texts = new String[capacity];
+		codes = new String[capacity];
+		indents = new int[capacity];
+		starts = new int[capacity];
+		ends = new int[capacity];
+		flags = new byte[capacity];
+		keywords = new byte[capacity];
+	}
+
+	/**
+	 * Grows the columns
+	 */
+	private void grow() {
+
+		int capacity = Math.max(16, texts.length * 2);
+		texts = Arrays.copyOf(texts, capacity);
+		codes = Arrays.copyOf(codes, capacity);
+		indents = Arrays.copyOf(indents, capacity);
+		starts = Arrays.copyOf(starts, capacity);
+		ends = Arrays.copyOf(ends, capacity);
+		flags = Arrays.copyOf(flags, capacity);
+		keywords = Arrays.copyOf(keywords, capacity);
+	}
+
+	/**
+	 * Checks if the trimmed text starts with the prefix
+	 */
+	private static boolean startsWith(String text, int start, int end, String prefix) {
+		return end - start >= prefix.length() && text.startsWith(prefix, start);
+	}
+
+	/**
+	 * Classifies the control statement keyword the trimmed text starts with
+	 */
+	private static byte getKeyword(String text, int start, int end) {
+
+		if (startsWith(text, start, end, Keywords.FOR)) {
+			return FOR;
+		} else if (startsWith(text, start, end, Keywords.WHILE)) {
+			return WHILE;
+		} else if (startsWith(text, start, end, Keywords.DO)) {
+			return DO;
+		} else if (startsWith(text, start, end, Keywords.IF)) {
+			return IF;
+		} else if (startsWith(text, start, end, Keywords.ELSE_IF_I)
+				|| startsWith(text, start, end, Keywords.ELSE_IF_II)) {
+			return ELSE_IF;
+		} else if (startsWith(text, start, end, Keywords.ELSE_I) || startsWith(text, start, end, Keywords.ELSE_II)) {
+			return ELSE;
+		}
+		return NONE;
+	}
+
+	/**
+	 * Adds a line
+	 *
+	 * @param text The line text
+	 * @param code The line code, excluding the comments
+	 */
+	public void add(String text, String code) {
+
+		if (size == texts.length) {
+			grow();
+		}
+
+		int length = text.length();
+		int indent = 0;
+		while (indent < length && text.charAt(indent) == ' ') {
+			indent++;
+		}
+		int start = indent;
+		while (start < length && text.charAt(start) <= ' ') {
+			start++;
+		}
+		int end = length;
+		while (end > start && text.charAt(end - 1) <= ' ') {
+			end--;
+		}
+
+		byte lineFlags = 0;
+		if (start == end) {
+			lineFlags |= BLANK;
+		} else if (text.startsWith("//", start) || text.startsWith("/*", start) || text.charAt(start) == '*') {
+			lineFlags |= COMMENT;
+		} else if (text.charAt(start) == '}') {
+			lineFlags |= BRACE_START;
+			if (end - start == 1 || text.startsWith("} //", start)) {
+				lineFlags |= CLOSING_BRACE;
+			}
+		}
+		if (text.startsWith("//")) {
+			lineFlags |= COLUMN_COMMENT;
+		}
+
+		texts[size] = text;
+		codes[size] = code;
+		indents[size] = indent;
+		starts[size] = start;
+		ends[size] = end;
+		flags[size] = lineFlags;
+		keywords[size] = getKeyword(text, start, end);
+		size++;
+	}
+
+	/**
+	 * Truncates the table to the size
+	 *
+	 * @param newSize The new lines count
+	 */
+	public void truncate(int newSize) {
+
+		Arrays.fill(texts, newSize, size, null);
+		Arrays.fill(codes, newSize, size, null);
+		size = Math.min(size, newSize);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public String getText(int line) {
+		return texts[line];
+	}
+
+	public String getCode(int line) {
+		return codes[line];
+	}
+
+	public int getIndent(int line) {
+		return indents[line];
+	}
+
+	/**
+	 * Gets the indentation spaces of the line
+	 *
+	 * @param line The line
+	 * @return The leading spaces
+	 */
+	public String getIndentSpaces(int line) {
+		return texts[line].substring(0, indents[line]);
+	}
+
+	public int getStart(int line) {
+		return starts[line];
+	}
+
+	public int getEnd(int line) {
+		return ends[line];
+	}
+
+	public byte getKeyword(int line) {
+		return keywords[line];
+	}
+
+	public boolean isBlank(int line) {
+		return (flags[line] & BLANK) != 0;
+	}
+
+	public boolean isComment(int line) {
+		return (flags[line] & COMMENT) != 0;
+	}
+
+	public boolean isClosingBrace(int line) {
+		return (flags[line] & CLOSING_BRACE) != 0;
+	}
+
+	public boolean startsWithClosingBrace(int line) {
+		return (flags[line] & BRACE_START) != 0;
+	}
+
+	public boolean isColumnComment(int line) {
+		return (flags[line] & COLUMN_COMMENT) != 0;
+	}
+
+	/**
+	 * Checks if the trimmed line ends with the suffix
+	 *
+	 * @param line   The line
+	 * @param suffix The suffix
+	 * @return If the trimmed line ends with the suffix
+	 */
+	public boolean endsWith(int line, String suffix) {
+		return ends[line] - starts[line] >= suffix.length()
+				&& texts[line].startsWith(suffix, ends[line] - suffix.length());
+	}
+}
@@ -0,0 +1,39 @@
+package com.parse.models;
+
+/**
+ * The phases of the instrumentation of a file
+ */
+public enum Phase {
+
+	/**
+	 * Reads the source file
+	 */
+	READ,
+
+	/**
+	 * Formats the code with the eclipse formatter, or canonicalizes it, before
+	 * the instrumentation
+	 */
+	PREPARE,
+
+	/**
+	 * Instruments the control statements
+	 */
+	INSTRUMENT,
+
+	/**
+	 * Formats the instrumented code with google-java-format
+	 */
+	FORMAT,
+
+	/**
+	 * Queues the instrumented code or the cached result for writing, and writes
+	 * the cache entry
+	 */
+	WRITE,
+
+	/**
+	 * Locates the predicates and creates the predicates file
+	 */
+	RECORD;
+}
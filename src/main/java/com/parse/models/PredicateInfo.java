@@ -1,82 +1,150 @@
 package com.parse.models;
 
 /**
- * The model PredicateInfo. It holds the predicate information.
+ * The model PredicateInfo. It holds the predicate information. It is kept
+ * compact, since the predicates of a whole run stay in memory: the name and
+ * the predicate initialization statement are derived from the predicate id,
+ * and the control is located by its offset and length in a text shared with
+ * the other predicates of the file. These strings are only built when asked
+ * for.
  */
 public class PredicateInfo {
 
 	/**
-	 * The predicate name
+	 * The predicate id, unique within the file
 	 */
-	private String name;
+	private final int id;
 
 	/**
 	 * The predicate type
 	 */
-	private String type;
+	private final PredicateType type;
 
 	/**
-	 * The predicate control
+	 * The text holding the control. The parser sets the converted statement,
+	 * which the instrumenter emits. Once the file is recorded, the predicates of
+	 * the file share one text holding their controls.
 	 */
-	private String control;
+	private String text;
 
 	/**
-	 * The predicate initialization statement
+	 * The offset of the control in the text
 	 */
-	private String predicateInitStatement;
+	private int controlOffset;
 
 	/**
-	 * The converted statement
+	 * The length of the control
 	 */
-	private String convertedStatement;
+	private final int controlLength;
 
-	public PredicateInfo(String name, String type, String control, String predicateInitStatement,
-			String convertedStatement) {
-		super();
-		this.name = name;
+	/**
+	 * The count of the predicate variables of the control
+	 */
+	private final int predicatesCount;
+
+	/**
+	 * The line number of the predicate in the instrumented code, or 0 if unknown
+	 */
+	private int lineNumber;
+
+	/**
+	 * The column number of the predicate in the instrumented code, or 0 if
+	 * unknown
+	 */
+	private int columnNumber;
+
+	public PredicateInfo(int id, PredicateType type, String text, int controlOffset, int controlLength,
+			int predicatesCount) {
+		this.id = id;
 		this.type = type;
-		this.control = control;
-		this.predicateInitStatement = predicateInitStatement;
-		this.convertedStatement = convertedStatement;
+		this.text = text;
+		this.controlOffset = controlOffset;
+		this.controlLength = controlLength;
+		this.predicatesCount = predicatesCount;
 	}
 
-	public String getName() {
-		return name;
+	public int getId() {
+		return id;
 	}
 
-	public void setName(String name) {
-		this.name = name;
+	public String getName() {
+		return "P" + id;
 	}
 
-	public String getType() {
+	public PredicateType getType() {
 		return type;
 	}
 
-	public void setType(String type) {
-		this.type = type;
+	public String getControl() {
+		return text.substring(controlOffset, controlOffset + controlLength);
 	}
 
-	public String getControl() {
-		return control;
+	public int getControlOffset() {
+		return controlOffset;
 	}
 
-	public void setControl(String control) {
-		this.control = control;
+	public int getControlLength() {
+		return controlLength;
 	}
 
+	public int getPredicatesCount() {
+		return predicatesCount;
+	}
+
+	/**
+	 * Gets the declarations of the predicate variables. A 'do-while' control
+	 * is assigned to the predicate itself, the other controls to one variable
+	 * per operand.
+	 * 
+	 * @return The predicate initialization statement
+	 */
 	public String getPredicateInitStatement() {
-		return predicateInitStatement;
+
+		if (type == PredicateType.DO_WHILE) {
+			return "boolean P" + id + "=false;";
+		}
+		StringBuilder predicateInitStatementBuilder = new StringBuilder(predicatesCount * 24);
+		for (int i = 0; i < predicatesCount; i++) {
+			predicateInitStatementBuilder.append("boolean P").append(id).append('_').append(i).append("=false;");
+		}
+		return predicateInitStatementBuilder.toString();
+	}
+
+	/**
+	 * Gets the text holding the control. Right after parsing, it is the
+	 * converted statement.
+	 * 
+	 * @return The text
+	 */
+	public String getText() {
+		return text;
+	}
+
+	/**
+	 * Moves the control into another text holding it, e.g. the text shared by
+	 * the predicates of the file
+	 * 
+	 * @param text          The text
+	 * @param controlOffset The offset of the control in the text
+	 */
+	public void relocate(String text, int controlOffset) {
+		this.text = text;
+		this.controlOffset = controlOffset;
+	}
+
+	public int getLineNumber() {
+		return lineNumber;
 	}
 
-	public void setPredicateInitStatement(String predicateInitStatement) {
-		this.predicateInitStatement = predicateInitStatement;
+	public void setLineNumber(int lineNumber) {
+		this.lineNumber = lineNumber;
 	}
 
-	public String getConvertedStatement() {
-		return convertedStatement;
+	public int getColumnNumber() {
+		return columnNumber;
 	}
 
-	public void setConvertedStatement(String convertedStatement) {
-		this.convertedStatement = convertedStatement;
+	public void setColumnNumber(int columnNumber) {
+		this.columnNumber = columnNumber;
 	}
 }
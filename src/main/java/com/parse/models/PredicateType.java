@@ -0,0 +1,22 @@
+package com.parse.models;
+
+/**
+ * The types of the instrumented control statements
+ */
+public enum PredicateType {
+
+	IF("IF"), ELSE_IF("ELSE-IF"), FOR("FOR"), WHILE("WHILE"), DO_WHILE("DO-WHILE");
+
+	/**
+	 * The label of the type in the predicate records
+	 */
+	private final String label;
+
+	PredicateType(String label) {
+		this.label = label;
+	}
+
+	public String getLabel() {
+		return label;
+	}
+}
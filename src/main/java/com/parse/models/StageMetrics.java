@@ -0,0 +1,73 @@
+package com.parse.models;
+
+/**
+ * The model StageMetrics. It holds the measurements of a pipeline stage. The
+ * queue depth is sampled each time a file is queued into the stage.
+ */
+public class StageMetrics {
+
+	/**
+	 * The stage name
+	 */
+	private final String name;
+
+	/**
+	 * The count of the worker threads
+	 */
+	private final int threads;
+
+	/**
+	 * The capacity of the input queue
+	 */
+	private final int queueCapacity;
+
+	/**
+	 * The count of the files queued into the stage
+	 */
+	private final long tasks;
+
+	/**
+	 * The average depth of the input queue
+	 */
+	private final double averageQueueDepth;
+
+	/**
+	 * The maximum depth of the input queue
+	 */
+	private final int maxQueueDepth;
+
+	public StageMetrics(String name, int threads, int queueCapacity, long tasks, double averageQueueDepth,
+			int maxQueueDepth) {
+		super();
+		this.name = name;
+		this.threads = threads;
+		this.queueCapacity = queueCapacity;
+		this.tasks = tasks;
+		this.averageQueueDepth = averageQueueDepth;
+		this.maxQueueDepth = maxQueueDepth;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	public long getTasks() {
+		return tasks;
+	}
+
+	public double getAverageQueueDepth() {
+		return averageQueueDepth;
+	}
+
+	public int getMaxQueueDepth() {
+		return maxQueueDepth;
+	}
+}
@@ -0,0 +1,51 @@
+package com.parse.utils;
+
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.function.Supplier;
+
+/**
+ * The FormatterPool. It hands out formatter instances to the worker threads,
+ * one thread at a time per instance. The instances are created lazily on the
+ * first demand and reused across files, thus at most one instance per
+ * concurrent worker is ever built, and none if nothing gets formatted.
+ *
+ * @param <T> The formatter type
+ */
+public class FormatterPool<T> {
+
+	/**
+	 * The formatter factory
+	 */
+	private final Supplier<T> factory;
+
+	/**
+	 * The idle formatters
+	 */
+	private final Deque<T> idleFormatters = new ConcurrentLinkedDeque<>();
+
+	public FormatterPool(Supplier<T> factory) {
+		this.factory = factory;
+	}
+
+	/**
+	 * Acquires a formatter. The formatter is confined to the calling thread
+	 * until it is released.
+	 *
+	 * @return The formatter
+	 */
+	public T acquire() {
+
+		T formatter = idleFormatters.pollFirst();
+		return formatter != null ? formatter : factory.get();
+	}
+
+	/**
+	 * Releases the formatter back to the pool
+	 *
+	 * @param formatter The formatter
+	 */
+	public void release(T formatter) {
+		idleFormatters.offerFirst(formatter);
+	}
+}
@@ -0,0 +1,115 @@
+package com.parse.utils;
+
+/**
+ * The utility class HeaderMatcher. It locates the parts of the control
+ * statement headers in a single scan, taking care of the nested parentheses
+ * and the string and character literals. The parts are returned as offsets,
+ * thus nothing is allocated.
+ */
+public class HeaderMatcher {
+
+	private HeaderMatcher() {
+		// Its a utility class. Thus instantiation is not allowed.
+	}
+
+	/**
+	 * Finds the control of the header
+	 *
+	 * @param statement The statement
+	 * @param header    The header prefix, ending with the opening parenthesis
+	 * @return The offset after the opening parenthesis, or -1 if the header is
+	 *         not found
+	 */
+	public static int findControlStart(String statement, String header) {
+
+		int headerStart = statement.indexOf(header);
+		return headerStart == -1 ? -1 : headerStart + header.length();
+	}
+
+	/**
+	 * Finds the closing parenthesis of the control
+	 *
+	 * @param statement    The statement
+	 * @param controlStart The offset after the opening parenthesis
+	 * @return The offset of the matching closing parenthesis, or -1 if the
+	 *         parentheses are not balanced
+	 */
+	public static int findControlEnd(String statement, int controlStart) {
+
+		int totalChars = statement.length();
+		int depth = 0;
+		int counter = controlStart;
+		while (counter < totalChars) {
+			char character = statement.charAt(counter);
+			if (character == '"' || character == '\'') {
+				counter = JavaLexer.skipLiteral(statement, counter);
+				continue;
+			} else if (character == '(') {
+				depth++;
+			} else if (character == ')') {
+				if (depth == 0) {
+					return counter;
+				}
+				depth--;
+			}
+			counter++;
+		}
+		return -1;
+	}
+
+	/**
+	 * Finds the next separator of the control which is not nested in
+	 * parentheses, braces or brackets
+	 *
+	 * @param statement The statement
+	 * @param from      The offset to start from
+	 * @param to        The control end offset
+	 * @param separator The separator
+	 * @return The offset of the separator, or -1 if it is not found
+	 */
+	public static int findSeparator(String statement, int from, int to, char separator) {
+
+		int depth = 0;
+		int counter = from;
+		while (counter < to) {
+			char character = statement.charAt(counter);
+			if (character == '"' || character == '\'') {
+				counter = JavaLexer.skipLiteral(statement, counter);
+				continue;
+			} else if (character == '(' || character == '{' || character == '[') {
+				depth++;
+			} else if (character == ')' || character == '}' || character == ']') {
+				depth--;
+			} else if (character == separator && depth == 0) {
+				return counter;
+			}
+			counter++;
+		}
+		return -1;
+	}
+
+	/**
+	 * Checks if the header ends after the offset, i.e. only the optional
+	 * terminator and blanks follow. Otherwise the statement carries code which
+	 * would be lost by rewriting the header.
+	 *
+	 * @param statement  The statement
+	 * @param offset     The offset after the closing parenthesis
+	 * @param terminator The optional terminator
+	 * @return If the header ends after the offset
+	 */
+	public static boolean isHeaderEnd(String statement, int offset, char terminator) {
+
+		int totalChars = statement.length();
+		while (offset < totalChars && statement.charAt(offset) <= ' ') {
+			offset++;
+		}
+		if (offset < totalChars && statement.charAt(offset) == terminator) {
+			offset++;
+		}
+		while (offset < totalChars && statement.charAt(offset) <= ' ') {
+			offset++;
+		}
+		return offset == totalChars;
+	}
+}
@@ -0,0 +1,345 @@
+package com.parse.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import com.parse.models.CacheEntry;
+import com.parse.models.PredicateInfo;
+import com.parse.models.PredicateType;
+
+/**
+ * The InstrumentationCache. It holds the instrumentation results of the source
+ * files, keyed by the hash of their content and the tool version, in the
+ * output directory. A cache instance is safe to use from many threads. The
+ * cache keeps one entry per source file. The entries not read or written for
+ * {@value #MAX_ENTRY_AGE_DAYS} days are dropped, thus the files removed from
+ * the sources do not grow the cache forever.
+ */
+public class InstrumentationCache {
+
+	/**
+	 * The cache directory name
+	 */
+	private static final String CACHE_DIRECTORY = ".instrumentation-cache";
+
+	/**
+	 * The manifest file name
+	 */
+	private static final String MANIFEST_FILE = "manifest.properties";
+
+	/**
+	 * The manifest key of the tool version
+	 */
+	private static final String TOOL_VERSION_KEY = "tool.version";
+
+	/**
+	 * The cache entry file extension
+	 */
+	private static final String ENTRY_EXTENSION = ".entry";
+
+	/**
+	 * The cache entry format version
+	 */
+	private static final int ENTRY_FORMAT = 5;
+
+	/**
+	 * The days an entry is kept without being read or written
+	 */
+	private static final int MAX_ENTRY_AGE_DAYS = 30;
+
+	/**
+	 * The cache directory
+	 */
+	private final Path cacheDirectory;
+
+	/**
+	 * The tool version
+	 */
+	private final String toolVersion;
+
+	/**
+	 * The signature of the options affecting the instrumented code
+	 */
+	private final String outputSignature;
+
+	/**
+	 * The manifest. It maps the cache keys to the source files they were last
+	 * seen at.
+	 */
+	private final Map<String, String> manifest = new ConcurrentHashMap<>();
+
+	/**
+	 * The cache keys by source file, the reverse of the manifest
+	 */
+	private final Map<String, String> sourceKeys = new ConcurrentHashMap<>();
+
+	/**
+	 * The stream the errors are reported to
+	 */
+	private final PrintStream console;
+
+	public InstrumentationCache(Path outputDirectory, String toolVersion, String outputSignature,
+			PrintStream console) {
+
+		this.cacheDirectory = outputDirectory.resolve(CACHE_DIRECTORY);
+		this.toolVersion = toolVersion;
+		this.outputSignature = outputSignature;
+		this.console = console;
+		load();
+	}
+
+	/**
+	 * Loads the manifest. The entries of another tool version are discarded.
+	 */
+	private void load() {
+
+		Path manifestPath = cacheDirectory.resolve(MANIFEST_FILE);
+		if (!Files.exists(manifestPath)) {
+			return;
+		}
+
+		Properties properties = new Properties();
+		try (InputStream inputStream = Files.newInputStream(manifestPath)) {
+			properties.load(inputStream);
+		} catch (IOException ioException) {
+			console.println("Error reading the cache manifest. The cache is discarded. Reason: "
+					+ ioException.getLocalizedMessage());
+			return;
+		}
+
+		if (toolVersion.equals(properties.getProperty(TOOL_VERSION_KEY))) {
+			properties.remove(TOOL_VERSION_KEY);
+			for (String key : properties.stringPropertyNames()) {
+				manifest.put(key, properties.getProperty(key));
+				sourceKeys.put(properties.getProperty(key), key);
+			}
+		}
+	}
+
+	/**
+	 * Writes the string prefixed with its length
+	 */
+	private static void writeString(DataOutputStream outputStream, String value) throws IOException {
+
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		outputStream.writeInt(bytes.length);
+		outputStream.write(bytes);
+	}
+
+	/**
+	 * Reads a string prefixed with its length
+	 */
+	private static String readString(DataInputStream inputStream) throws IOException {
+
+		byte[] bytes = new byte[inputStream.readInt()];
+		inputStream.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Moves the temporary file to its target, atomically when supported
+	 */
+	private static void moveFile(Path temporaryPath, Path targetPath) throws IOException {
+
+		try {
+			Files.move(temporaryPath, targetPath, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException atomicMoveNotSupportedException) {
+			Files.move(temporaryPath, targetPath, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Creates the digest of a cache key. The source content is then fed to the
+	 * digest, as it is read.
+	 * 
+	 * @return The SHA-256 digest, updated with the tool version and the options
+	 *         signature
+	 */
+	public MessageDigest newKeyDigest() {
+
+		try {
+			MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+			messageDigest.update(toolVersion.getBytes(StandardCharsets.UTF_8));
+			messageDigest.update((byte) 0);
+			messageDigest.update(outputSignature.getBytes(StandardCharsets.UTF_8));
+			messageDigest.update((byte) 0);
+			return messageDigest;
+		} catch (NoSuchAlgorithmException noSuchAlgorithmException) {
+			throw new IllegalStateException("SHA-256 is not supported.", noSuchAlgorithmException);
+		}
+	}
+
+	/**
+	 * Gets the cache key
+	 * 
+	 * @param keyDigest The key digest, updated with the source content
+	 * @return The hex encoded digest
+	 */
+	public static String getKey(MessageDigest keyDigest) {
+
+		StringBuilder keyBuilder = new StringBuilder();
+		for (byte digestByte : keyDigest.digest()) {
+			keyBuilder.append(Character.forDigit((digestByte >> 4) & 0xF, 16));
+			keyBuilder.append(Character.forDigit(digestByte & 0xF, 16));
+		}
+		return keyBuilder.toString();
+	}
+
+	/**
+	 * Gets the cache entry. The entry file is touched, so its age restarts.
+	 * 
+	 * @param key The cache key
+	 * @return The cache entry, or null if the cache has no valid entry
+	 */
+	public CacheEntry get(String key) {
+
+		String sourcePath = manifest.get(key);
+		if (sourcePath == null) {
+			return null;
+		}
+
+		Path entryPath = cacheDirectory.resolve(key + ENTRY_EXTENSION);
+		try (DataInputStream inputStream = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(entryPath)))) {
+			if (inputStream.readInt() != ENTRY_FORMAT) {
+				return null;
+			}
+			String instrumentedCode = readString(inputStream);
+			String controls = readString(inputStream);
+			int predicatesCount = inputStream.readInt();
+			List<PredicateInfo> predicateInfoList = new ArrayList<>(predicatesCount);
+			int controlOffset = 0;
+			for (int i = 0; i < predicatesCount; i++) {
+				int id = inputStream.readInt();
+				PredicateType type = PredicateType.valueOf(readString(inputStream));
+				int controlLength = inputStream.readInt();
+				if (controlLength < 0 || controlOffset + controlLength > controls.length()) {
+					throw new IOException("Invalid control length: " + controlLength);
+				}
+				PredicateInfo predicateInfo = new PredicateInfo(id, type, controls, controlOffset, controlLength,
+						inputStream.readInt());
+				predicateInfo.setLineNumber(inputStream.readInt());
+				predicateInfo.setColumnNumber(inputStream.readInt());
+				predicateInfoList.add(predicateInfo);
+				controlOffset += controlLength;
+			}
+			Files.setLastModifiedTime(entryPath, FileTime.fromMillis(System.currentTimeMillis()));
+			return new CacheEntry(instrumentedCode, predicateInfoList);
+		} catch (IOException | IllegalArgumentException exception) {
+			console.println("Error reading the cached code. File: " + sourcePath + ", Reason: "
+					+ exception.getLocalizedMessage());
+			manifest.remove(key);
+			return null;
+		}
+	}
+
+	/**
+	 * Puts the cache entry. It replaces the previous entry of the source file.
+	 * 
+	 * @param key        The cache key
+	 * @param sourcePath The source file path, relative to the root directory
+	 * @param cacheEntry The cache entry
+	 */
+	public void put(String key, String sourcePath, CacheEntry cacheEntry) {
+
+		try {
+			Files.createDirectories(cacheDirectory);
+			Path temporaryPath = Files.createTempFile(cacheDirectory, key, ".tmp");
+			try (DataOutputStream outputStream = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(temporaryPath)))) {
+				outputStream.writeInt(ENTRY_FORMAT);
+				writeString(outputStream, cacheEntry.getInstrumentedCode());
+
+				// The controls are written once, in one string, as the predicates share them
+				StringBuilder controlsBuilder = new StringBuilder();
+				for (PredicateInfo predicateInfo : cacheEntry.getPredicateInfoList()) {
+					controlsBuilder.append(predicateInfo.getText(), predicateInfo.getControlOffset(),
+							predicateInfo.getControlOffset() + predicateInfo.getControlLength());
+				}
+				writeString(outputStream, controlsBuilder.toString());
+				outputStream.writeInt(cacheEntry.getPredicateInfoList().size());
+				for (PredicateInfo predicateInfo : cacheEntry.getPredicateInfoList()) {
+					outputStream.writeInt(predicateInfo.getId());
+					writeString(outputStream, predicateInfo.getType().name());
+					outputStream.writeInt(predicateInfo.getControlLength());
+					outputStream.writeInt(predicateInfo.getPredicatesCount());
+					outputStream.writeInt(predicateInfo.getLineNumber());
+					outputStream.writeInt(predicateInfo.getColumnNumber());
+				}
+			}
+			moveFile(temporaryPath, cacheDirectory.resolve(key + ENTRY_EXTENSION));
+			synchronized (this) {
+				manifest.put(key, sourcePath);
+				String previousKey = sourceKeys.put(sourcePath, key);
+				if (previousKey != null && !previousKey.equals(key) && sourcePath.equals(manifest.get(previousKey))) {
+					manifest.remove(previousKey);
+				}
+			}
+		} catch (IOException ioException) {
+			console.println("Error caching the instrumented code. File: " + sourcePath + ", Reason: "
+					+ ioException.getLocalizedMessage());
+		}
+	}
+
+	/**
+	 * Saves the manifest. The entries no longer referenced by it and the entries
+	 * older than {@value #MAX_ENTRY_AGE_DAYS} days are deleted, the others are
+	 * kept whether the run used them or not.
+	 * 
+	 * @throws IOException If the manifest could not be written
+	 */
+	public void save() throws IOException {
+
+		Files.createDirectories(cacheDirectory);
+		long expiryTime = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(MAX_ENTRY_AGE_DAYS);
+		Set<String> entryKeys = new HashSet<>();
+		try (Stream<Path> pathStream = Files.list(cacheDirectory)) {
+			for (Path entryPath : (Iterable<Path>) pathStream::iterator) {
+				String fileName = entryPath.getFileName().toString();
+				if (!fileName.endsWith(ENTRY_EXTENSION)) {
+					continue;
+				}
+				String key = fileName.substring(0, fileName.length() - ENTRY_EXTENSION.length());
+				if (manifest.containsKey(key) && Files.getLastModifiedTime(entryPath).toMillis() >= expiryTime) {
+					entryKeys.add(key);
+				} else {
+					Files.deleteIfExists(entryPath);
+				}
+			}
+		}
+		manifest.keySet().retainAll(entryKeys);
+
+		Properties properties = new Properties();
+		properties.putAll(manifest);
+		properties.setProperty(TOOL_VERSION_KEY, toolVersion);
+
+		Path temporaryPath = Files.createTempFile(cacheDirectory, MANIFEST_FILE, ".tmp");
+		try (OutputStream outputStream = Files.newOutputStream(temporaryPath)) {
+			properties.store(outputStream, "Instrumentation cache manifest");
+		}
+		moveFile(temporaryPath, cacheDirectory.resolve(MANIFEST_FILE));
+	}
+}
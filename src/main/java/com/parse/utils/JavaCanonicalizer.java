@@ -0,0 +1,546 @@
+package com.parse.utils;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * The JavaCanonicalizer. It is a lightweight replacement of the formatter,
+ * laying out the code the way the control statement handlers expect: one
+ * statement per line, the opening braces at the end of the lines, the closing
+ * braces on their own lines (followed by else, catch, finally or the while of
+ * a do-while loop), a space between the control keywords and their
+ * parentheses, and four spaces of indentation per block. The bodies of the
+ * control statements without braces get wrapped into blocks.
+ */
+public class JavaCanonicalizer {
+
+	/**
+	 * The indentation of a block
+	 */
+	private static final int INDENT = 4;
+
+	/**
+	 * The indentation of a continuation line
+	 */
+	private static final int CONTINUATION_INDENT = 8;
+
+	/**
+	 * The code
+	 */
+	private final String code;
+
+	/**
+	 * The total characters
+	 */
+	private final int totalChars;
+
+	/**
+	 * The canonical code
+	 */
+	private final StringBuilder codeBuilder;
+
+	/**
+	 * The line being built
+	 */
+	private final StringBuilder lineBuilder = new StringBuilder();
+
+	/**
+	 * The open blocks
+	 */
+	private final Deque<Block> blocks = new ArrayDeque<>();
+
+	/**
+	 * The current position
+	 */
+	private int counter;
+
+	/**
+	 * The current block depth
+	 */
+	private int depth;
+
+	/**
+	 * The block depth of the line being built
+	 */
+	private int lineDepth;
+
+	/**
+	 * If the line being built continues a statement
+	 */
+	private boolean lineContinuation;
+
+	/**
+	 * The parentheses depth in the current block
+	 */
+	private int parenthesesDepth;
+
+	/**
+	 * If the current statement is not yet terminated
+	 */
+	private boolean statementOpen;
+
+	/**
+	 * The control keyword whose header is being read
+	 */
+	private String header;
+
+	/**
+	 * The parentheses depth of the header keyword
+	 */
+	private int headerParenthesesDepth;
+
+	/**
+	 * If the header parentheses are opened
+	 */
+	private boolean headerOpen;
+
+	/**
+	 * If the next block is the body of a do-while loop
+	 */
+	private boolean doBody;
+
+	/**
+	 * The consecutive line breaks seen since the last line
+	 */
+	private int lineBreaks;
+
+	/**
+	 * The line comment moved after the opening brace following it
+	 */
+	private String deferredComment;
+
+	/**
+	 * An open block
+	 */
+	private static class Block {
+
+		/**
+		 * The keyword of the statement whose body got wrapped, or null if the
+		 * block is part of the code
+		 */
+		private final String synthetic;
+
+		/**
+		 * If it is the body of a do-while loop
+		 */
+		private final boolean doBody;
+
+		/**
+		 * The parentheses depth outside the block
+		 */
+		private final int parenthesesDepth;
+
+		private Block(String synthetic, boolean doBody, int parenthesesDepth) {
+			this.synthetic = synthetic;
+			this.doBody = doBody;
+			this.parenthesesDepth = parenthesesDepth;
+		}
+	}
+
+	private JavaCanonicalizer(String code) {
+		this.code = code;
+		this.totalChars = code.length();
+		this.codeBuilder = new StringBuilder(totalChars + totalChars / 4);
+	}
+
+	/**
+	 * Canonicalizes the code
+	 *
+	 * @param code The code
+	 * @return The canonical code
+	 */
+	public static String canonicalize(String code) {
+
+		JavaCanonicalizer canonicalizer = new JavaCanonicalizer(code);
+		canonicalizer.run();
+		return canonicalizer.codeBuilder.toString();
+	}
+
+	/**
+	 * Appends the text to the line being built
+	 */
+	private void append(CharSequence text) {
+
+		if (lineBuilder.length() == 0) {
+			lineDepth = depth;
+			lineContinuation = statementOpen;
+		}
+		lineBuilder.append(text);
+	}
+
+	/**
+	 * Appends the character to the line being built
+	 */
+	private void append(char character) {
+
+		if (lineBuilder.length() == 0) {
+			lineDepth = depth;
+			lineContinuation = statementOpen;
+		}
+		lineBuilder.append(character);
+	}
+
+	/**
+	 * Appends a space, unless the line is empty or already ends with one
+	 */
+	private void appendSpace() {
+
+		int length = lineBuilder.length();
+		if (length > 0 && lineBuilder.charAt(length - 1) != ' ') {
+			lineBuilder.append(' ');
+		}
+	}
+
+	/**
+	 * Appends the line being built to the code
+	 */
+	private void emitLine() {
+
+		int length = lineBuilder.length();
+		while (length > 0 && lineBuilder.charAt(length - 1) == ' ') {
+			length--;
+		}
+		if (length > 0) {
+			int indent = lineDepth * INDENT + (lineContinuation ? CONTINUATION_INDENT : 0);
+			for (int i = 0; i < indent; i++) {
+				codeBuilder.append(' ');
+			}
+			codeBuilder.append(lineBuilder, 0, length);
+			codeBuilder.append('\n');
+		}
+		lineBuilder.setLength(0);
+		lineBreaks = 0;
+	}
+
+	/**
+	 * Gets the position of the next code character, skipping the white spaces
+	 * and the comments
+	 */
+	private int peek(int position) {
+
+		while (position < totalChars) {
+			char character = code.charAt(position);
+			if (Character.isWhitespace(character)) {
+				position++;
+			} else if (code.startsWith("//", position)) {
+				int lineEnd = code.indexOf('\n', position);
+				position = lineEnd == -1 ? totalChars : lineEnd;
+			} else if (code.startsWith("/*", position)) {
+				int commentEnd = code.indexOf("*/", position + 2);
+				position = commentEnd == -1 ? totalChars : commentEnd + 2;
+			} else {
+				break;
+			}
+		}
+		return position;
+	}
+
+	/**
+	 * Gets the next code character, or zero at the end of the code
+	 */
+	private char peekChar() {
+
+		int position = peek(counter);
+		return position < totalChars ? code.charAt(position) : 0;
+	}
+
+	/**
+	 * Checks if the next code token is the word
+	 */
+	private boolean peekWord(String word) {
+
+		int position = peek(counter);
+		int end = position + word.length();
+		return code.startsWith(word, position)
+				&& (end == totalChars || !Character.isJavaIdentifierPart(code.charAt(end)));
+	}
+
+	/**
+	 * Opens a block wrapping the body of the control statement
+	 *
+	 * @param keyword The control statement keyword
+	 */
+	private void openSyntheticBlock(String keyword) {
+
+		appendSpace();
+		append('{');
+		blocks.push(new Block(keyword, false, parenthesesDepth));
+		depth++;
+		parenthesesDepth = 0;
+		statementOpen = false;
+		emitLine();
+	}
+
+	/**
+	 * Closes the blocks wrapping the bodies of the statements terminated along
+	 * with the current statement
+	 */
+	private void endStatement() {
+
+		while (!blocks.isEmpty() && blocks.peek().synthetic != null) {
+			Block block = blocks.pop();
+			depth--;
+			parenthesesDepth = block.parenthesesDepth;
+			append('}');
+			if (("if".equals(block.synthetic) && peekWord("else"))
+					|| ("do".equals(block.synthetic) && peekWord("while"))) {
+				append(' ');
+				return;
+			}
+			emitLine();
+		}
+	}
+
+	/**
+	 * Handles the end of the control statement header
+	 *
+	 * @param keyword The control statement keyword
+	 */
+	private void endHeader(String keyword) {
+
+		if ("if".equals(keyword) || "for".equals(keyword) || "while".equals(keyword)) {
+			char next = peekChar();
+			if (next != '{' && next != ';' && next != 0) {
+				openSyntheticBlock(keyword);
+			}
+		}
+	}
+
+	/**
+	 * Handles a word of the code
+	 *
+	 * @param word The word
+	 */
+	private void handleWord(String word) {
+
+		append(word);
+		statementOpen = true;
+		switch (word) {
+		case "if":
+		case "for":
+		case "while":
+		case "switch":
+		case "synchronized":
+		case "catch":
+			if (peekChar() == '(') {
+				header = word;
+				headerParenthesesDepth = parenthesesDepth;
+				headerOpen = false;
+			}
+			break;
+		case "else":
+			if (peekChar() != '{' && !peekWord("if")) {
+				openSyntheticBlock(word);
+			}
+			break;
+		case "do":
+			if (peekChar() == '{') {
+				doBody = true;
+			} else {
+				openSyntheticBlock(word);
+			}
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Handles an opening brace
+	 */
+	private void openBlock() {
+
+		appendSpace();
+		append('{');
+		if (deferredComment != null) {
+			append(' ');
+			append(deferredComment);
+			deferredComment = null;
+		}
+		blocks.push(new Block(null, doBody, parenthesesDepth));
+		doBody = false;
+		depth++;
+		parenthesesDepth = 0;
+		statementOpen = false;
+		emitLine();
+	}
+
+	/**
+	 * Handles a closing brace
+	 */
+	private void closeBlock() {
+
+		statementOpen = false;
+		emitLine();
+		Block block = blocks.isEmpty() ? new Block(null, false, 0) : blocks.pop();
+		depth = Math.max(0, depth - 1);
+		parenthesesDepth = block.parenthesesDepth;
+		append('}');
+
+		char next = peekChar();
+		if (next == ')' || next == ',' || next == ';' || next == '.' || next == ']') {
+			statementOpen = true;
+		} else if (peekWord("else") || peekWord("catch") || peekWord("finally")
+				|| (block.doBody && peekWord("while"))) {
+			append(' ');
+		} else {
+			emitLine();
+			endStatement();
+		}
+	}
+
+	/**
+	 * Handles a block comment
+	 *
+	 * @param comment The comment
+	 */
+	private void appendBlockComment(String comment) {
+
+		int lineEnd = comment.indexOf('\n');
+		if (lineEnd == -1) {
+			append(comment);
+			return;
+		}
+
+		append(comment.substring(0, lineEnd).trim());
+		while (lineEnd != -1) {
+			emitLine();
+			int lineStart = lineEnd + 1;
+			lineEnd = comment.indexOf('\n', lineStart);
+			appendCommentLine(comment.substring(lineStart, lineEnd == -1 ? comment.length() : lineEnd));
+		}
+	}
+
+	/**
+	 * Appends a line of a block comment. The continuation lines are indented one
+	 * space deeper than the comment start.
+	 */
+	private void appendCommentLine(String commentLine) {
+
+		if (lineBuilder.length() == 0) {
+			append(' ');
+		}
+		append(commentLine.trim());
+	}
+
+	/**
+	 * Checks if the line being built ends with a block comment
+	 */
+	private boolean endsWithBlockComment() {
+
+		int length = lineBuilder.length();
+		while (length > 0 && lineBuilder.charAt(length - 1) == ' ') {
+			length--;
+		}
+		return length >= 2 && lineBuilder.charAt(length - 1) == '/' && lineBuilder.charAt(length - 2) == '*';
+	}
+
+	/**
+	 * Checks if the line being built is a switch case label
+	 */
+	private boolean isCaseLabel() {
+
+		return parenthesesDepth == 0 && (lineBuilder.indexOf("case ") == 0
+				|| "default".contentEquals(lineBuilder) || "default ".contentEquals(lineBuilder));
+	}
+
+	/**
+	 * Canonicalizes the code
+	 */
+	private void run() {
+
+		while (counter < totalChars) {
+			char character = code.charAt(counter);
+			if (character == '\n') {
+				if (lineBuilder.length() == 0) {
+					lineBreaks++;
+					if (lineBreaks == 2 && codeBuilder.length() > 0) {
+						codeBuilder.append('\n');
+					}
+				} else if (!statementOpen && endsWithBlockComment()) {
+					emitLine();
+					lineBreaks = 1;
+				} else {
+					appendSpace();
+				}
+				counter++;
+			} else if (Character.isWhitespace(character)) {
+				appendSpace();
+				counter++;
+			} else if (character == '"' || character == '\'') {
+				int literalEnd = JavaLexer.skipLiteral(code, counter);
+				append(code.subSequence(counter, literalEnd));
+				statementOpen = true;
+				counter = literalEnd;
+			} else if (code.startsWith("//", counter)) {
+				int commentEnd = code.indexOf('\n', counter);
+				commentEnd = commentEnd == -1 ? totalChars : commentEnd;
+				String comment = code.substring(counter, commentEnd);
+				counter = commentEnd;
+
+				// Keeping the opening brace on the line of its statement
+				if (lineBuilder.length() > 0 && deferredComment == null && peekChar() == '{') {
+					deferredComment = comment;
+				} else {
+					append(comment);
+					emitLine();
+				}
+			} else if (code.startsWith("/*", counter)) {
+				int commentEnd = code.indexOf("*/", counter + 2);
+				commentEnd = commentEnd == -1 ? totalChars : commentEnd + 2;
+				appendBlockComment(code.substring(counter, commentEnd));
+				counter = commentEnd;
+			} else if (Character.isJavaIdentifierStart(character)) {
+				int wordEnd = counter + 1;
+				while (wordEnd < totalChars && Character.isJavaIdentifierPart(code.charAt(wordEnd))) {
+					wordEnd++;
+				}
+				String word = code.substring(counter, wordEnd);
+				counter = wordEnd;
+				handleWord(word);
+			} else if (character == '{') {
+				counter++;
+				openBlock();
+			} else if (character == '}') {
+				counter++;
+				closeBlock();
+			} else if (character == ';') {
+				append(character);
+				counter++;
+				if (parenthesesDepth == 0) {
+					statementOpen = false;
+					emitLine();
+					endStatement();
+				}
+			} else if (character == '(') {
+				if (header != null && !headerOpen && parenthesesDepth == headerParenthesesDepth) {
+					appendSpace();
+					headerOpen = true;
+				}
+				append(character);
+				parenthesesDepth++;
+				counter++;
+			} else if (character == ')') {
+				append(character);
+				parenthesesDepth--;
+				counter++;
+				if (header != null && headerOpen && parenthesesDepth == headerParenthesesDepth) {
+					String keyword = header;
+					header = null;
+					endHeader(keyword);
+				}
+			} else if (character == ':' && isCaseLabel() && counter + 1 < totalChars
+					&& code.charAt(counter + 1) != ':') {
+				append(character);
+				counter++;
+				statementOpen = false;
+				emitLine();
+			} else {
+				append(character);
+				statementOpen = true;
+				counter++;
+			}
+		}
+		emitLine();
+	}
+}
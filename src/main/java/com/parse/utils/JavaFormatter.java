@@ -13,7 +13,7 @@ import org.eclipse.text.edits.TextEdit;
 
 public class JavaFormatter {
 
-	CodeFormatter codeFormatter;
+	private final CodeFormatter codeFormatter;
 
 	private static final Map<String, Object> DEFAULT_FORMATTER_OPTIONS;
 
@@ -0,0 +1,133 @@
+package com.parse.utils;
+
+import com.parse.models.LineTable;
+
+/**
+ * The utility class JavaLexer. It splits the code into lines and strips the
+ * comments from them in a single pass, taking care of the string and character
+ * literals.
+ */
+public class JavaLexer {
+
+	private JavaLexer() {
+		// Its a utility class. Thus instantiation is not allowed.
+	}
+
+	/**
+	 * Skips the string or character literal starting at the offset
+	 * 
+	 * @param code    The code
+	 * @param counter The offset of the opening quote
+	 * @return The offset after the closing quote, or of the line end if the
+	 *         literal is not closed
+	 */
+	static int skipLiteral(String code, int counter) {
+
+		char quote = code.charAt(counter++);
+		int totalChars = code.length();
+		while (counter < totalChars) {
+			char character = code.charAt(counter);
+			if (character == '\n') {
+				break;
+			}
+			counter++;
+			if (character == '\\' && counter < totalChars && code.charAt(counter) != '\n') {
+				counter++;
+			} else if (character == quote) {
+				break;
+			}
+		}
+		return counter;
+	}
+
+	/**
+	 * Lexes the code into the line table. Like {@link String#split(String)}, the
+	 * trailing empty lines are dropped.
+	 * 
+	 * @param code The code
+	 * @return The line table
+	 */
+	public static LineTable lex(String code) {
+
+		LineTable lines = new LineTable(code.length() / 32 + 16);
+		StringBuilder codeBuilder = new StringBuilder();
+		int totalChars = code.length();
+		int lineStart = 0;
+		int segmentStart = 0;
+		int counter = 0;
+		boolean inComment = false;
+		boolean commentFound = false;
+		int lastNonEmptyLine = 0;
+
+		while (counter <= totalChars) {
+			char character = counter < totalChars ? code.charAt(counter) : '\n';
+			if (character == '\n') {
+				String text = code.substring(lineStart, counter);
+				String lineCode = text;
+				if (commentFound) {
+					if (!inComment) {
+						codeBuilder.append(code, segmentStart, counter);
+					}
+					lineCode = codeBuilder.toString();
+					codeBuilder.setLength(0);
+				}
+				lines.add(text, lineCode);
+				if (!text.isEmpty()) {
+					lastNonEmptyLine = lines.size();
+				}
+				counter++;
+				lineStart = counter;
+				segmentStart = counter;
+				commentFound = inComment;
+			} else if (inComment) {
+				if (character == '*' && counter + 1 < totalChars && code.charAt(counter + 1) == '/') {
+					inComment = false;
+					counter += 2;
+					segmentStart = counter;
+				} else {
+					counter++;
+				}
+			} else if (character == '"' || character == '\'') {
+				counter = skipLiteral(code, counter);
+			} else if (character == '/' && counter + 1 < totalChars && code.charAt(counter + 1) == '/') {
+				codeBuilder.append(code, segmentStart, counter);
+				commentFound = true;
+				int lineEnd = code.indexOf('\n', counter);
+				counter = lineEnd == -1 ? totalChars : lineEnd;
+				segmentStart = counter;
+			} else if (character == '/' && counter + 1 < totalChars && code.charAt(counter + 1) == '*') {
+				codeBuilder.append(code, segmentStart, counter);
+				commentFound = true;
+				inComment = true;
+				counter += 2;
+			} else {
+				counter++;
+			}
+		}
+
+		lines.truncate(lastNonEmptyLine);
+		return lines;
+	}
+
+	/**
+	 * Strips the comments and line breaks from the code snippet
+	 * 
+	 * @param code The code snippet
+	 * @return The code snippet in a single line, without comments
+	 */
+	public static String stripComments(String code) {
+
+		StringBuilder codeBuilder = new StringBuilder();
+		LineTable lines = lex(code);
+		for (int i = 0; i < lines.size(); i++) {
+			String lineCode = lines.getCode(i).trim();
+			if (!lineCode.isEmpty()) {
+				if (codeBuilder.length() > 0) {
+					codeBuilder.append(' ');
+				}
+				codeBuilder.append(lineCode);
+			}
+		}
+		return codeBuilder.toString();
+	}
+}
@@ -0,0 +1,146 @@
+package com.parse.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.parse.models.PredicateInfo;
+
+/**
+ * The OutputBuilder. It collects the output lines as a list of segments. A
+ * segment is either a line or a slot reserved in front of the lines emitted
+ * after it, which can be filled in later. Thus inserting a line never moves
+ * the lines already emitted, and the text is produced in one linear pass. The
+ * converted statement of a predicate is emitted as an anchored line, whose
+ * offset is only known once the text is built, and the control of the
+ * predicate then gets relocated into the text.
+ */
+public class OutputBuilder {
+
+	/**
+	 * The Slot. It holds the lines filled in at a reserved position of the
+	 * output, in the order they are added.
+	 */
+	public static class Slot {
+
+		/**
+		 * The lines, or null if none is added yet
+		 */
+		private List<String> lines;
+
+		private Slot() {
+			super();
+		}
+
+		/**
+		 * Adds the line to the slot, after the ones added before
+		 *
+		 * @param line The line
+		 */
+		public void add(String line) {
+
+			if (lines == null) {
+				lines = new ArrayList<>(2);
+			}
+			lines.add(line);
+		}
+	}
+
+	/**
+	 * The segments, each one a line or a slot
+	 */
+	private final List<Object> segments;
+
+	/**
+	 * The total length of the lines
+	 */
+	private int length;
+
+	/**
+	 * The predicates of the anchored lines, in the order they are appended
+	 */
+	private final List<PredicateInfo> anchoredPredicates = new ArrayList<>();
+
+	/**
+	 * The segment indexes of the anchored lines
+	 */
+	private int[] anchoredSegments = new int[16];
+
+	public OutputBuilder(int capacity) {
+		this.segments = new ArrayList<>(capacity);
+	}
+
+	/**
+	 * Appends the line
+	 *
+	 * @param line The line
+	 */
+	public void append(String line) {
+
+		segments.add(line);
+		length += line.length() + 1;
+	}
+
+	/**
+	 * Appends the converted statement of the predicate as an anchored line
+	 *
+	 * @param predicateInfo The predicate info, holding its converted statement
+	 */
+	public void append(PredicateInfo predicateInfo) {
+
+		if (anchoredPredicates.size() == anchoredSegments.length) {
+			anchoredSegments = Arrays.copyOf(anchoredSegments, anchoredSegments.length * 2);
+		}
+		anchoredSegments[anchoredPredicates.size()] = segments.size();
+		anchoredPredicates.add(predicateInfo);
+		append(predicateInfo.getText());
+	}
+
+	/**
+	 * Reserves a slot at the current position
+	 *
+	 * @return The slot
+	 */
+	public Slot reserve() {
+
+		Slot slot = new Slot();
+		segments.add(slot);
+		return slot;
+	}
+
+	/**
+	 * Builds the text, terminating each line with a line feed. The controls of
+	 * the anchored predicates are relocated into the text.
+	 *
+	 * @return The text
+	 */
+	public String build() {
+
+		StringBuilder textBuilder = new StringBuilder(length + length / 8);
+		int[] anchoredOffsets = new int[anchoredPredicates.size()];
+		int anchor = 0;
+		for (int i = 0; i < segments.size(); i++) {
+			Object segment = segments.get(i);
+			if (anchor < anchoredOffsets.length && anchoredSegments[anchor] == i) {
+				anchoredOffsets[anchor++] = textBuilder.length();
+			}
+			if (segment instanceof Slot) {
+				List<String> lines = ((Slot) segment).lines;
+				if (lines != null) {
+					for (String line : lines) {
+						textBuilder.append(line).append('\n');
+					}
+				}
+			} else {
+				textBuilder.append((String) segment).append('\n');
+			}
+		}
+
+		String text = textBuilder.toString();
+		for (int i = 0; i < anchoredOffsets.length; i++) {
+			PredicateInfo predicateInfo = anchoredPredicates.get(i);
+			predicateInfo.relocate(text, anchoredOffsets[i] + predicateInfo.getControlOffset());
+		}
+		return text;
+	}
+}
@@ -0,0 +1,277 @@
+package com.parse.utils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The OutputWriter. It takes the output files off the processing threads: the
+ * contents are queued and written by a dedicated thread, each one into a
+ * temporary file next to its target which then atomically replaces the
+ * target. Thus a crash never leaves a half-written file. The queued contents
+ * are bounded in bytes, and the producers block once the disk falls behind.
+ * Several writer threads keep several files in flight on the slow disks.
+ */
+public class OutputWriter implements AutoCloseable {
+
+	/**
+	 * The WriteTask. It holds a queued output file.
+	 */
+	private static class WriteTask {
+
+		/**
+		 * The target path
+		 */
+		private final Path path;
+
+		/**
+		 * The content
+		 */
+		private final byte[] content;
+
+		/**
+		 * The bytes reserved from the budget
+		 */
+		private final int reservedBytes;
+
+		/**
+		 * The handler run if the file could not be written
+		 */
+		private final Runnable failureHandler;
+
+		private WriteTask(Path path, byte[] content, int reservedBytes, Runnable failureHandler) {
+			this.path = path;
+			this.content = content;
+			this.reservedBytes = reservedBytes;
+			this.failureHandler = failureHandler;
+		}
+	}
+
+	/**
+	 * The task stopping the writer thread
+	 */
+	private static final WriteTask CLOSE_TASK = new WriteTask(null, new byte[0], 0, null);
+
+	/**
+	 * The suffix of the temporary files
+	 */
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+
+	/**
+	 * The counter keeping the temporary file names unique
+	 */
+	private static final AtomicLong TEMPORARY_COUNTER = new AtomicLong(System.nanoTime());
+
+	/**
+	 * The queued tasks
+	 */
+	private final BlockingQueue<WriteTask> tasks = new LinkedBlockingQueue<>();
+
+	/**
+	 * The budget of the queued bytes
+	 */
+	private final Semaphore byteBudget;
+
+	/**
+	 * The maximum bytes of the queued contents
+	 */
+	private final int maxPendingBytes;
+
+	/**
+	 * The writer threads
+	 */
+	private final List<Thread> writerThreads = new ArrayList<>();
+
+	/**
+	 * The count of the tasks queued or being written
+	 */
+	private int pendingTasksCount;
+
+	/**
+	 * If the writer is closed
+	 */
+	private boolean closed;
+
+	/**
+	 * The stream the write errors are reported to
+	 */
+	private final PrintStream console;
+
+	public OutputWriter(int maxPendingBytes, int writers, ThreadFactory threadFactory, PrintStream console) {
+
+		this.maxPendingBytes = maxPendingBytes;
+		this.console = console;
+		this.byteBudget = new Semaphore(maxPendingBytes);
+		for (int i = 0; i < writers; i++) {
+			Thread writerThread = threadFactory.newThread(this::run);
+			writerThread.setName("output-writer-" + (i + 1));
+			writerThreads.add(writerThread);
+			writerThread.start();
+		}
+	}
+
+	/**
+	 * Queues the file. It blocks while the queued contents exceed the budget.
+	 *
+	 * @param path           The target path
+	 * @param content        The content
+	 * @param failureHandler The handler run on the writer thread if the file
+	 *                       could not be written
+	 * @throws InterruptedIOException If interrupted while waiting for the budget
+	 */
+	public void write(Path path, byte[] content, Runnable failureHandler) throws InterruptedIOException {
+
+		int reservedBytes = Math.min(content.length, maxPendingBytes);
+		try {
+			byteBudget.acquire(reservedBytes);
+		} catch (InterruptedException interruptedException) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while queueing " + path);
+		}
+		synchronized (this) {
+			if (closed) {
+				byteBudget.release(reservedBytes);
+				throw new IllegalStateException("The output writer is closed.");
+			}
+			pendingTasksCount++;
+			tasks.add(new WriteTask(path, content, reservedBytes, failureHandler));
+		}
+	}
+
+	/**
+	 * Waits until the queued files are written
+	 */
+	public synchronized void flush() {
+
+		try {
+			while (pendingTasksCount > 0) {
+				wait();
+			}
+		} catch (InterruptedException interruptedException) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Writes the queued files until the writer is closed. Each writer thread
+	 * stops on its own close task.
+	 */
+	private void run() {
+
+		while (true) {
+			WriteTask task;
+			try {
+				task = tasks.take();
+			} catch (InterruptedException interruptedException) {
+				continue;
+			}
+			if (task == CLOSE_TASK) {
+				return;
+			}
+
+			try {
+				writeAtomically(task.path, task.content);
+			} catch (IOException | RuntimeException exception) {
+				console.println("Error writing the file. File: " + task.path + ", Reason: "
+						+ exception.getLocalizedMessage());
+				task.failureHandler.run();
+			} finally {
+				byteBudget.release(task.reservedBytes);
+				synchronized (this) {
+					if (--pendingTasksCount == 0) {
+						notifyAll();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes the file into a temporary file, then moves it over the target. An
+	 * existing target keeps its permissions, and a symbolic link gets its
+	 * linked file replaced rather than itself. The missing parent directories
+	 * are created.
+	 *
+	 * @param path    The target path
+	 * @param content The content
+	 * @throws IOException If the file could not be written
+	 */
+	private static void writeAtomically(Path path, byte[] content) throws IOException {
+
+		Path absolutePath = Files.exists(path) ? path.toRealPath() : path.toAbsolutePath();
+		Files.createDirectories(absolutePath.getParent());
+		Path temporaryPath = absolutePath.resolveSibling("." + absolutePath.getFileName() + "."
+				+ Long.toHexString(TEMPORARY_COUNTER.getAndIncrement()) + TEMPORARY_SUFFIX);
+		try {
+			try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE_NEW,
+					StandardOpenOption.WRITE)) {
+				ByteBuffer buffer = ByteBuffer.wrap(content);
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+				channel.force(false);
+			}
+
+			PosixFileAttributeView targetView = Files.getFileAttributeView(absolutePath,
+					PosixFileAttributeView.class);
+			if (targetView != null && Files.exists(absolutePath)) {
+				Files.getFileAttributeView(temporaryPath, PosixFileAttributeView.class)
+						.setPermissions(targetView.readAttributes().permissions());
+			}
+
+			try {
+				Files.move(temporaryPath, absolutePath, StandardCopyOption.ATOMIC_MOVE,
+						StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException atomicMoveNotSupportedException) {
+				Files.move(temporaryPath, absolutePath, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temporaryPath);
+		}
+	}
+
+	/**
+	 * Closes the writer, once the queued files are written
+	 */
+	@Override
+	public void close() {
+
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+		}
+		boolean interrupted = false;
+		for (int i = 0; i < writerThreads.size(); i++) {
+			tasks.add(CLOSE_TASK);
+		}
+		for (Thread writerThread : writerThreads) {
+			while (writerThread.isAlive()) {
+				try {
+					writerThread.join();
+				} catch (InterruptedException interruptedException) {
+					interrupted = true;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
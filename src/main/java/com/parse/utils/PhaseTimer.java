@@ -0,0 +1,70 @@
+package com.parse.utils;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import com.parse.models.FileMetrics;
+import com.parse.models.Phase;
+
+/**
+ * The PhaseTimer. It splits the instrumentation of a file into its phases,
+ * measuring the wall-clock time and the CPU time of the calling thread since
+ * the previous lap. A timer is confined to the thread instrumenting the file.
+ */
+public class PhaseTimer {
+
+	/**
+	 * The thread management bean
+	 */
+	private static final ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+
+	/**
+	 * If the CPU time of the current thread is measurable
+	 */
+	private static final boolean CPU_TIME_SUPPORTED = THREAD_BEAN.isCurrentThreadCpuTimeSupported();
+
+	/**
+	 * The metrics of the file
+	 */
+	private final FileMetrics fileMetrics;
+
+	/**
+	 * The wall-clock time of the previous lap
+	 */
+	private long wallTime;
+
+	/**
+	 * The CPU time of the previous lap
+	 */
+	private long cpuTime;
+
+	public PhaseTimer(FileMetrics fileMetrics) {
+
+		this.fileMetrics = fileMetrics;
+		this.wallTime = System.nanoTime();
+		this.cpuTime = getCpuTime();
+	}
+
+	/**
+	 * Gets the CPU time of the current thread
+	 *
+	 * @return The CPU time, or 0 if it is not measurable
+	 */
+	private static long getCpuTime() {
+		return CPU_TIME_SUPPORTED ? THREAD_BEAN.getCurrentThreadCpuTime() : 0;
+	}
+
+	/**
+	 * Ends the phase, adding the times elapsed since the previous lap to it
+	 *
+	 * @param phase The phase
+	 */
+	public void lap(Phase phase) {
+
+		long lapWallTime = System.nanoTime();
+		long lapCpuTime = getCpuTime();
+		fileMetrics.addTime(phase, lapWallTime - wallTime, lapCpuTime - cpuTime);
+		wallTime = lapWallTime;
+		cpuTime = lapCpuTime;
+	}
+}
@@ -0,0 +1,225 @@
+package com.parse.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+import com.parse.models.StageMetrics;
+
+/**
+ * The PipelineStage. It runs a step of the work on its own worker threads,
+ * taking the tasks from a bounded input queue and handing them on to the next
+ * stage. A full queue blocks the previous stage, thus the tasks in flight are
+ * bounded. Once the input ends and the workers are done, the end is passed on
+ * to the next stage.
+ *
+ * @param <T> The task type
+ */
+public class PipelineStage<T> {
+
+	/**
+	 * The element marking the end of the input, one per worker
+	 */
+	private static final Object END = new Object();
+
+	/**
+	 * The stage name
+	 */
+	private final String name;
+
+	/**
+	 * The count of the worker threads
+	 */
+	private final int threads;
+
+	/**
+	 * The capacity of the input queue
+	 */
+	private final int capacity;
+
+	/**
+	 * The factory of the worker threads
+	 */
+	private final ThreadFactory threadFactory;
+
+	/**
+	 * The input queue
+	 */
+	private final BlockingQueue<Object> queue;
+
+	/**
+	 * The work. It returns if the task goes on to the next stage.
+	 */
+	private final Predicate<T> work;
+
+	/**
+	 * The handler of the tasks whose work threw
+	 */
+	private final BiConsumer<T, Throwable> failureHandler;
+
+	/**
+	 * The worker threads
+	 */
+	private final List<Thread> workers = new ArrayList<>();
+
+	/**
+	 * The count of the workers still running
+	 */
+	private final AtomicInteger runningWorkers;
+
+	/**
+	 * The latch released once all the workers are done
+	 */
+	private final CountDownLatch finished;
+
+	/**
+	 * The count of the queued tasks
+	 */
+	private final LongAdder queuedTasks = new LongAdder();
+
+	/**
+	 * The sum of the queue depths sampled on queueing
+	 */
+	private final LongAdder queueDepthSum = new LongAdder();
+
+	/**
+	 * The maximum queue depth sampled on queueing
+	 */
+	private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+	/**
+	 * The next stage, or null if this is the last one
+	 */
+	private PipelineStage<T> next;
+
+	public PipelineStage(String name, int threads, ThreadFactory threadFactory, int capacity, Predicate<T> work,
+			BiConsumer<T, Throwable> failureHandler) {
+
+		this.name = name;
+		this.threads = threads;
+		this.threadFactory = threadFactory;
+		this.capacity = capacity;
+		this.queue = new ArrayBlockingQueue<>(capacity);
+		this.work = work;
+		this.failureHandler = failureHandler;
+		this.runningWorkers = new AtomicInteger(threads);
+		this.finished = new CountDownLatch(threads);
+	}
+
+	public void setNext(PipelineStage<T> next) {
+		this.next = next;
+	}
+
+	/**
+	 * Starts the worker threads
+	 */
+	public void start() {
+
+		for (int i = 0; i < threads; i++) {
+			Thread worker = threadFactory.newThread(this::run);
+			worker.setName(name + "-" + (i + 1));
+			workers.add(worker);
+			worker.start();
+		}
+	}
+
+	/**
+	 * Queues the task. It blocks while the queue is full.
+	 *
+	 * @param task The task
+	 * @throws InterruptedException If interrupted while waiting
+	 */
+	public void put(T task) throws InterruptedException {
+
+		queue.put(task);
+		int queueDepth = queue.size();
+		queuedTasks.increment();
+		queueDepthSum.add(queueDepth);
+		maxQueueDepth.accumulateAndGet(queueDepth, Math::max);
+	}
+
+	/**
+	 * Ends the input. The workers finish the queued tasks, then stop.
+	 *
+	 * @throws InterruptedException If interrupted while waiting
+	 */
+	public void end() throws InterruptedException {
+
+		for (int i = 0; i < threads; i++) {
+			queue.put(END);
+		}
+	}
+
+	/**
+	 * Waits until the workers are done
+	 *
+	 * @throws InterruptedException If interrupted while waiting
+	 */
+	public void await() throws InterruptedException {
+		finished.await();
+	}
+
+	/**
+	 * Stops the workers, abandoning the queued tasks
+	 */
+	public void stop() {
+
+		for (Thread worker : workers) {
+			worker.interrupt();
+		}
+	}
+
+	/**
+	 * Runs the tasks until the input ends
+	 */
+	@SuppressWarnings("unchecked")
+	private void run() {
+
+		try {
+			while (true) {
+				Object element = queue.take();
+				if (element == END) {
+					break;
+				}
+
+				T task = (T) element;
+				boolean handOn;
+				try {
+					handOn = work.test(task);
+				} catch (RuntimeException | Error throwable) {
+					failureHandler.accept(task, throwable);
+					handOn = false;
+				}
+				if (handOn && next != null) {
+					next.put(task);
+				}
+			}
+			if (runningWorkers.decrementAndGet() == 0 && next != null) {
+				next.end();
+			}
+		} catch (InterruptedException interruptedException) {
+			Thread.currentThread().interrupt();
+		} finally {
+			finished.countDown();
+		}
+	}
+
+	/**
+	 * Gets the metrics of the stage
+	 *
+	 * @return The stage metrics
+	 */
+	public StageMetrics getMetrics() {
+
+		long tasks = queuedTasks.sum();
+		return new StageMetrics(name, threads, capacity, tasks,
+				tasks == 0 ? 0 : (double) queueDepthSum.sum() / tasks, maxQueueDepth.get());
+	}
+}
@@ -0,0 +1,401 @@
+package com.parse.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+import com.parse.models.PredicateInfo;
+
+/**
+ * The PredicateIndex. It holds the predicates of the instrumented files in one
+ * binary file, read through a memory mapping. Thus a predicate is looked up in
+ * constant time, without parsing the predicate records of the files. Each run
+ * merges its files into the index of the output directory, so the files of
+ * the earlier runs keep their predicates.
+ *
+ * The index starts with a header of five ints: the magic number, the format
+ * version, and the counts of the files, the predicates and the strings. Then
+ * come the file records, the predicate records, the string offsets and the
+ * UTF-8 string data. A file record holds the path string, relative to the root
+ * directory of the run with '/' separators, the first predicate and the
+ * predicates count of the file, the files being sorted by path. A predicate
+ * record holds the name, file, type and control strings, and the line and
+ * column of the predicate in the instrumented code. The strings are stored
+ * once, and the offsets hold one more entry marking the end of the data. All
+ * the ints are big-endian.
+ */
+public class PredicateIndex {
+
+	/**
+	 * The index file name, in the output directory
+	 */
+	public static final String FILE_NAME = "predicates.idx";
+
+	/**
+	 * The magic number, "CSPI"
+	 */
+	private static final int MAGIC = 0x43535049;
+
+	/**
+	 * The index format version
+	 */
+	private static final int FORMAT = 2;
+
+	/**
+	 * The header size in bytes
+	 */
+	private static final int HEADER_SIZE = 5 * Integer.BYTES;
+
+	/**
+	 * The file record size in bytes
+	 */
+	private static final int FILE_RECORD_SIZE = 3 * Integer.BYTES;
+
+	/**
+	 * The predicate record size in bytes
+	 */
+	private static final int PREDICATE_RECORD_SIZE = 6 * Integer.BYTES;
+
+	/**
+	 * The mapped index
+	 */
+	private final ByteBuffer buffer;
+
+	/**
+	 * The count of the files
+	 */
+	private final int filesCount;
+
+	/**
+	 * The count of the predicates
+	 */
+	private final int predicatesCount;
+
+	/**
+	 * The count of the strings
+	 */
+	private final int stringsCount;
+
+	/**
+	 * The offset of the predicate records
+	 */
+	private final int predicatesOffset;
+
+	/**
+	 * The offset of the string offsets
+	 */
+	private final int stringOffsetsOffset;
+
+	/**
+	 * The offset of the string data
+	 */
+	private final int stringDataOffset;
+
+	/**
+	 * Opens the index, mapping it into memory. The mapping is released once the
+	 * index is no longer referenced.
+	 *
+	 * @param indexPath The index file path
+	 * @throws IOException If the file could not be mapped or is not an index
+	 */
+	public PredicateIndex(Path indexPath) throws IOException {
+
+		try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+			if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Not a predicate index: " + indexPath);
+			}
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		if (buffer.getInt(0) != MAGIC || buffer.getInt(Integer.BYTES) != FORMAT) {
+			throw new IOException("Not a predicate index of format " + FORMAT + ": " + indexPath);
+		}
+		filesCount = buffer.getInt(2 * Integer.BYTES);
+		predicatesCount = buffer.getInt(3 * Integer.BYTES);
+		stringsCount = buffer.getInt(4 * Integer.BYTES);
+		predicatesOffset = HEADER_SIZE + filesCount * FILE_RECORD_SIZE;
+		stringOffsetsOffset = predicatesOffset + predicatesCount * PREDICATE_RECORD_SIZE;
+		stringDataOffset = stringOffsetsOffset + (stringsCount + 1) * Integer.BYTES;
+		if (filesCount < 0 || predicatesCount < 0 || stringsCount < 0 || stringDataOffset < HEADER_SIZE
+				|| stringDataOffset > buffer.capacity()
+				|| stringDataOffset + buffer.getInt(stringDataOffset - Integer.BYTES) != buffer.capacity()) {
+			throw new IOException("Corrupted predicate index: " + indexPath);
+		}
+	}
+
+	/**
+	 * Builds the index of the predicates
+	 *
+	 * @param predicateInfoMap The predicate information per file path
+	 * @return The index content
+	 * @throws IOException If the index would exceed 2 GB
+	 */
+	public static byte[] build(Map<String, List<PredicateInfo>> predicateInfoMap) throws IOException {
+		return build(predicateInfoMap, null, filePath -> true);
+	}
+
+	/**
+	 * Builds the index of the predicates, merged with the previous index. The
+	 * files of the previous index which are not in the map keep their
+	 * predicates if the filter accepts them, the others get replaced or
+	 * dropped.
+	 *
+	 * @param predicateInfoMap   The predicate information per file path
+	 * @param previousIndex      The previous index, or null
+	 * @param previousFileFilter The filter of the files of the previous index
+	 *                           to keep
+	 * @return The index content
+	 * @throws IOException If the index would exceed 2 GB
+	 */
+	public static byte[] build(Map<String, List<PredicateInfo>> predicateInfoMap, PredicateIndex previousIndex,
+			Predicate<String> previousFileFilter) throws IOException {
+
+		Map<String, List<PredicateInfo>> sortedMap = new TreeMap<>(predicateInfoMap);
+		int predicatesCount = 0;
+		for (List<PredicateInfo> predicateInfoList : predicateInfoMap.values()) {
+			predicatesCount += predicateInfoList.size();
+		}
+		Map<String, Integer> previousFiles = new HashMap<>();
+		if (previousIndex != null) {
+			for (int previousFileId = 0; previousFileId < previousIndex.getFilesCount(); previousFileId++) {
+				String filePath = previousIndex.getFilePath(previousFileId);
+				if (!sortedMap.containsKey(filePath) && previousFileFilter.test(filePath)) {
+					previousFiles.put(filePath, previousFileId);
+					predicatesCount += previousIndex.getPredicatesCount(previousFileId);
+				}
+			}
+		}
+		TreeSet<String> filePaths = new TreeSet<>(sortedMap.keySet());
+		filePaths.addAll(previousFiles.keySet());
+
+		// Interning the strings
+		Map<String, Integer> stringIds = new HashMap<>();
+		List<byte[]> strings = new ArrayList<>();
+		int[] fileRecords = new int[filePaths.size() * 3];
+		int[] predicateRecords = new int[predicatesCount * 6];
+		int fileId = 0;
+		int predicateId = 0;
+		for (String filePath : filePaths) {
+			fileRecords[fileId * 3] = intern(filePath, stringIds, strings);
+			fileRecords[fileId * 3 + 1] = predicateId;
+			List<PredicateInfo> predicateInfoList = sortedMap.get(filePath);
+			if (predicateInfoList != null) {
+				fileRecords[fileId * 3 + 2] = predicateInfoList.size();
+				for (PredicateInfo predicateInfo : predicateInfoList) {
+					int record = predicateId++ * 6;
+					predicateRecords[record] = intern(predicateInfo.getName(), stringIds, strings);
+					predicateRecords[record + 1] = fileId;
+					predicateRecords[record + 2] = intern(predicateInfo.getType().getLabel(), stringIds, strings);
+					predicateRecords[record + 3] = intern(predicateInfo.getControl().trim(), stringIds, strings);
+					predicateRecords[record + 4] = predicateInfo.getLineNumber();
+					predicateRecords[record + 5] = predicateInfo.getColumnNumber();
+				}
+			} else {
+				int previousFileId = previousFiles.get(filePath);
+				int firstPredicate = previousIndex.getFirstPredicate(previousFileId);
+				int lastPredicate = firstPredicate + previousIndex.getPredicatesCount(previousFileId);
+				fileRecords[fileId * 3 + 2] = lastPredicate - firstPredicate;
+				for (int previousId = firstPredicate; previousId < lastPredicate; previousId++) {
+					int record = predicateId++ * 6;
+					predicateRecords[record] = intern(previousIndex.getName(previousId), stringIds, strings);
+					predicateRecords[record + 1] = fileId;
+					predicateRecords[record + 2] = intern(previousIndex.getType(previousId), stringIds, strings);
+					predicateRecords[record + 3] = intern(previousIndex.getControl(previousId), stringIds, strings);
+					predicateRecords[record + 4] = previousIndex.getLineNumber(previousId);
+					predicateRecords[record + 5] = previousIndex.getColumnNumber(previousId);
+				}
+			}
+			fileId++;
+		}
+
+		long stringDataSize = 0;
+		for (byte[] string : strings) {
+			stringDataSize += string.length;
+		}
+		long indexSize = HEADER_SIZE + (long) fileRecords.length * Integer.BYTES
+				+ (long) predicateRecords.length * Integer.BYTES + (strings.size() + 1L) * Integer.BYTES
+				+ stringDataSize;
+		if (indexSize > Integer.MAX_VALUE) {
+			throw new IOException("The predicate index exceeds 2 GB.");
+		}
+
+		ByteBuffer indexBuffer = ByteBuffer.allocate((int) indexSize);
+		indexBuffer.putInt(MAGIC).putInt(FORMAT).putInt(filePaths.size()).putInt(predicatesCount)
+				.putInt(strings.size());
+		for (int value : fileRecords) {
+			indexBuffer.putInt(value);
+		}
+		for (int value : predicateRecords) {
+			indexBuffer.putInt(value);
+		}
+		int stringOffset = 0;
+		for (byte[] string : strings) {
+			indexBuffer.putInt(stringOffset);
+			stringOffset += string.length;
+		}
+		indexBuffer.putInt(stringOffset);
+		for (byte[] string : strings) {
+			indexBuffer.put(string);
+		}
+		return indexBuffer.array();
+	}
+
+	/**
+	 * Interns the string
+	 *
+	 * @return The string id
+	 */
+	private static int intern(String value, Map<String, Integer> stringIds, List<byte[]> strings) {
+
+		Integer stringId = stringIds.get(value);
+		if (stringId == null) {
+			stringId = strings.size();
+			stringIds.put(value, stringId);
+			strings.add(value.getBytes(StandardCharsets.UTF_8));
+		}
+		return stringId;
+	}
+
+	/**
+	 * Checks the id is within the count
+	 */
+	private static void checkId(int id, int count) {
+
+		if (id < 0 || id >= count) {
+			throw new IndexOutOfBoundsException("Id: " + id + ", Count: " + count);
+		}
+	}
+
+	/**
+	 * Gets the string
+	 *
+	 * @param stringId The string id
+	 * @return The string
+	 */
+	public String getString(int stringId) {
+
+		checkId(stringId, stringsCount);
+		int start = buffer.getInt(stringOffsetsOffset + stringId * Integer.BYTES);
+		int end = buffer.getInt(stringOffsetsOffset + (stringId + 1) * Integer.BYTES);
+		byte[] bytes = new byte[end - start];
+		ByteBuffer stringBuffer = buffer.duplicate();
+		stringBuffer.limit(stringDataOffset + end);
+		stringBuffer.position(stringDataOffset + start);
+		stringBuffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Gets a field of the predicate record
+	 */
+	private int getPredicateField(int predicateId, int field) {
+
+		checkId(predicateId, predicatesCount);
+		return buffer.getInt(predicatesOffset + predicateId * PREDICATE_RECORD_SIZE + field * Integer.BYTES);
+	}
+
+	/**
+	 * Gets a field of the file record
+	 */
+	private int getFileField(int fileId, int field) {
+
+		checkId(fileId, filesCount);
+		return buffer.getInt(HEADER_SIZE + fileId * FILE_RECORD_SIZE + field * Integer.BYTES);
+	}
+
+	public int getFilesCount() {
+		return filesCount;
+	}
+
+	public int getPredicatesCount() {
+		return predicatesCount;
+	}
+
+	public String getFilePath(int fileId) {
+		return getString(getFileField(fileId, 0));
+	}
+
+	/**
+	 * Gets the id of the first predicate of the file. The predicates of a file
+	 * have consecutive ids.
+	 *
+	 * @param fileId The file id
+	 * @return The predicate id
+	 */
+	public int getFirstPredicate(int fileId) {
+		return getFileField(fileId, 1);
+	}
+
+	public int getPredicatesCount(int fileId) {
+		return getFileField(fileId, 2);
+	}
+
+	/**
+	 * Finds the file by its path
+	 *
+	 * @param filePath The file path, relative to the root directory of the run
+	 * @return The file id, or -1 if the file is not in the index
+	 */
+	public int findFile(String filePath) {
+
+		int low = 0;
+		int high = filesCount - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int comparison = getFilePath(middle).compareTo(filePath);
+			if (comparison < 0) {
+				low = middle + 1;
+			} else if (comparison > 0) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	public String getName(int predicateId) {
+		return getString(getPredicateField(predicateId, 0));
+	}
+
+	public int getFileId(int predicateId) {
+		return getPredicateField(predicateId, 1);
+	}
+
+	public String getType(int predicateId) {
+		return getString(getPredicateField(predicateId, 2));
+	}
+
+	public String getControl(int predicateId) {
+		return getString(getPredicateField(predicateId, 3));
+	}
+
+	/**
+	 * Gets the line number of the predicate in the instrumented code
+	 *
+	 * @param predicateId The predicate id
+	 * @return The line number, or 0 if unknown
+	 */
+	public int getLineNumber(int predicateId) {
+		return getPredicateField(predicateId, 4);
+	}
+
+	/**
+	 * Gets the column number of the predicate in the instrumented code
+	 *
+	 * @param predicateId The predicate id
+	 * @return The column number, or 0 if unknown
+	 */
+	public int getColumnNumber(int predicateId) {
+		return getPredicateField(predicateId, 5);
+	}
+}
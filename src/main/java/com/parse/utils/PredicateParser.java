@@ -1,14 +1,15 @@
 package com.parse.utils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
 
+import com.parse.events.Events;
 import com.parse.models.PredicateInfo;
+import com.parse.models.PredicateType;
 import com.parse.models.ProcessedStatementInfo;
 
 /**
@@ -18,143 +19,268 @@ import com.parse.models.ProcessedStatementInfo;
 public class PredicateParser {
 
 	/**
-	 * The atomic predicate counter
+	 * The if statement header
 	 */
-	private static AtomicInteger predicateCounter = new AtomicInteger();
+	private static final String IF_HEADER = "if (";
 
 	/**
-	 * The atomic boolean counter
+	 * The else-if statement header
 	 */
-	private static AtomicInteger booleanCounter = new AtomicInteger();
+	private static final String ELSE_IF_HEADER = "else if (";
 
 	/**
-	 * The if statement pattern
+	 * The 'for' statement header
 	 */
-	private static final Pattern IF_PATTERN = Pattern.compile("(if \\()(.*)(\\))");
+	private static final String FOR_HEADER = "for (";
 
 	/**
-	 * The else-if statement pattern
+	 * The 'while' statement header
 	 */
-	private static final Pattern ELSE_IF_PATTERN = Pattern.compile("(else if \\()(.*)(\\))");
+	private static final String WHILE_HEADER = "while (";
 
 	/**
-	 * The 'for' statement pattern
+	 * The 'do-while' statement header
 	 */
-	private static final Pattern FOR_PATTERN = Pattern.compile("for \\(([^\\;]*)\\;([^\\;]*)\\;([^\\;]*)\\)");
+	private static final String DO_WHILE_HEADER = "} while (";
 
 	/**
-	 * The 'while' statement pattern
+	 * The 'if' converted statement prefix
 	 */
-	private static final Pattern WHILE_PATTERN = Pattern.compile("(while \\()(.*)(\\))");
+	private static final String IF_PREFIX = "if(";
 
 	/**
-	 * The 'do-while' statement pattern
+	 * The else-if converted statement prefix
 	 */
-	private static final Pattern DO_WHILE_PATTERN = Pattern.compile("(\\} while \\()(.*)(\\)\\;)");
+	private static final String ELSE_IF_PREFIX = "else if(";
+
+	/**
+	 * The 'for' converted statement prefix
+	 */
+	private static final String FOR_PREFIX = "for(";
+
+	/**
+	 * The 'while' converted statement prefix
+	 */
+	private static final String WHILE_PREFIX = "while(";
+
+	/**
+	 * The 'do-while' converted statement prefix
+	 */
+	private static final String DO_WHILE_PREFIX = "} while(";
+
+	/**
+	 * The operand number of the '&&' and '||' operators which do not split
+	 * their group, as the group is not a plain condition
+	 */
+	private static final int NOT_SPLIT = -2;
 
 	private PredicateParser() {
 		// Its a utility class. Thus instantiation is not allowed.
 	}
 
-	private static ProcessedStatementInfo processStatement(String statement, Integer predicateId,
-			boolean insertPredicate) {
+	/**
+	 * Checks if a conditional operator starts at the offset
+	 * 
+	 * @param statement The statement
+	 * @param counter   The offset
+	 * @return If the offset starts a '&&' or '||' operator
+	 */
+	private static boolean isConditionalOperator(String statement, int counter) {
 
-		ProcessedStatementInfo processedStatementInfo = new ProcessedStatementInfo();
-		char[] chars = statement.toCharArray();
-		int totalChars = chars.length;
-		int counter = 0;
-		int endIndex = -1;
-		StringBuilder statementBuilder = new StringBuilder();
-		List<String> predicates = new ArrayList<>();
+		char character = statement.charAt(counter);
+		return (character == '&' || character == '|') && counter + 1 < statement.length()
+				&& statement.charAt(counter + 1) == character;
+	}
 
-		while (counter < totalChars) {
-			if (chars[counter] == '"') {
-				statementBuilder.append(chars[counter++]);
-				while (counter < totalChars) {
-					if (chars[counter] == '"' && chars[counter - 1] != '\\') {
-						statementBuilder.append(chars[counter++]);
-						break;
-					}
-					statementBuilder.append(chars[counter++]);
-				}
-			} else if (chars[counter] == '\'') {
-				statementBuilder.append(chars[counter++]);
-				while (counter < totalChars) {
-					if (chars[counter] == '\'' && chars[counter - 1] != '\\') {
-						statementBuilder.append(chars[counter++]);
-						break;
+	/**
+	 * Checks if a lambda arrow starts at the offset. The '--' operator followed
+	 * by '>' is not an arrow.
+	 * 
+	 * @param statement The statement
+	 * @param counter   The offset
+	 * @return If the offset starts a '->' arrow
+	 */
+	private static boolean isLambdaArrow(String statement, int counter) {
+
+		return statement.charAt(counter) == '-' && counter + 1 < statement.length()
+				&& statement.charAt(counter + 1) == '>' && (counter == 0 || statement.charAt(counter - 1) != '-');
+	}
+
+	/**
+	 * Skips the lambda body following the arrow. The predicate variables can
+	 * not be assigned from a lambda, thus its body is kept as is.
+	 * 
+	 * @param statement The statement
+	 * @param counter   The offset of the arrow
+	 * @return The offset of the parenthesis closing the group of the lambda, or
+	 *         the statement length
+	 */
+	private static int skipLambda(String statement, int counter) {
+
+		int lambdaEnd = HeaderMatcher.findControlEnd(statement, counter + 2);
+		return lambdaEnd == -1 ? statement.length() : lambdaEnd;
+	}
+
+	/**
+	 * Pushes the value onto the stack
+	 * 
+	 * @param stack The stack
+	 * @param size  The stack size
+	 * @param value The value
+	 * @return The stack, grown if full
+	 */
+	private static int[] push(int[] stack, int size, int value) {
+
+		if (size == stack.length) {
+			stack = Arrays.copyOf(stack, size * 2);
+		}
+		stack[size] = value;
+		return stack;
+	}
+
+	/**
+	 * Numbers the predicates of the operands. The statement and every
+	 * parenthesized group are split into operands by their '&&' and '||'
+	 * operators. When a group closes, each of its operands gets a predicate from
+	 * the last one to the first, unless the group is a parenthesized single
+	 * operand. Thus the inner groups are numbered before their enclosing
+	 * operands. A group holding a '?' or a ',' is a conditional expression or
+	 * an argument list, not a plain condition, so its operators do not split
+	 * it. The lambda bodies are skipped.
+	 * 
+	 * @param statement The statement
+	 * @return The predicate number of each operand in order of appearance, -1
+	 *         if the operand is not wrapped, or {@link #NOT_SPLIT} if its
+	 *         operator does not split the group. Each operand starts the
+	 *         statement, a group or follows an operator, thus there are at most
+	 *         as many as characters plus one.
+	 */
+	private static int[] numberOperands(String statement) {
+
+		int totalChars = statement.length();
+		int[] operandPredicates = new int[totalChars + 1];
+		int operandsCount = 0;
+		int[] openOperands = new int[16];
+		int openOperandsCount = 0;
+		int[] groupStarts = new int[16];
+		int[] groupsSplit = new int[16];
+		int groupsCount = 0;
+		int predicatesCount = 0;
+
+		groupsSplit = push(groupsSplit, groupsCount, 1);
+		groupStarts = push(groupStarts, groupsCount++, openOperandsCount);
+		openOperands = push(openOperands, openOperandsCount++, operandsCount++);
+		int counter = 0;
+		while (counter <= totalChars) {
+			boolean groupEnd = counter == totalChars
+					|| (statement.charAt(counter) == ')' && groupsCount > 1);
+			if (groupEnd) {
+				int groupStart = groupStarts[--groupsCount];
+				if (groupsSplit[groupsCount] == 0) {
+					while (openOperandsCount > groupStart + 1) {
+						operandPredicates[openOperands[--openOperandsCount]] = NOT_SPLIT;
 					}
-					statementBuilder.append(chars[counter++]);
 				}
-			} else if ((chars[counter] == '|' && chars[counter + 1] == '|')
-					|| (chars[counter] == '&' && chars[counter + 1] == '&')) {
-				insertPredicate = true;
-				endIndex = statementBuilder.length();
-				statementBuilder.append(chars[counter++]);
-				statementBuilder.append(chars[counter++]);
-				StringBuilder subStatementBuilder = new StringBuilder();
-				while (counter < totalChars) {
-					subStatementBuilder.append(chars[counter++]);
+				boolean wrapped = openOperandsCount - groupStart > 1 || groupsCount == 0;
+				while (openOperandsCount > groupStart) {
+					operandPredicates[openOperands[--openOperandsCount]] = wrapped ? predicatesCount++ : -1;
 				}
-				ProcessedStatementInfo subdiv = processStatement(subStatementBuilder.toString(), predicateId, true);
-				statementBuilder.append(subdiv.getConvertedStatement());
-				predicates.addAll(subdiv.getPredicates());
-				break;
-			} else if (chars[counter] == '(') {
-				statementBuilder.append(chars[counter++]);
-				int bracesCount = 1;
-				StringBuilder subStatementBuilder = new StringBuilder();
-				while (counter < totalChars) {
-					if (chars[counter] == '"') {
-						subStatementBuilder.append(chars[counter++]);
-						while (counter < totalChars) {
-							if (chars[counter] == '"' && chars[counter - 1] != '\\') {
-								subStatementBuilder.append(chars[counter++]);
-								break;
-							}
-							subStatementBuilder.append(chars[counter++]);
-						}
-					} else if (chars[counter] == '\'') {
-						subStatementBuilder.append(chars[counter++]);
-						while (counter < totalChars) {
-							if (chars[counter] == '\'' && chars[counter - 1] != '\\') {
-								subStatementBuilder.append(chars[counter++]);
-								break;
-							}
-							subStatementBuilder.append(chars[counter++]);
-						}
-					} else if (chars[counter] == '(') {
-						subStatementBuilder.append(chars[counter++]);
-						bracesCount++;
-					} else if (chars[counter] == ')') {
-						bracesCount--;
-						if (bracesCount > 0) {
-							subStatementBuilder.append(chars[counter++]);
-						} else {
-							break;
-						}
-					} else {
-						subStatementBuilder.append(chars[counter++]);
-					}
+				if (counter == totalChars && groupsCount > 0) {
+					continue;
 				}
-				ProcessedStatementInfo subdiv = processStatement(subStatementBuilder.toString(), predicateId, false);
-				statementBuilder.append(subdiv.getConvertedStatement());
-				subStatementBuilder.append(")");
-				predicates.addAll(subdiv.getPredicates());
+				counter++;
+			} else if (statement.charAt(counter) == '"' || statement.charAt(counter) == '\'') {
+				counter = JavaLexer.skipLiteral(statement, counter);
+			} else if (isLambdaArrow(statement, counter)) {
+				counter = skipLambda(statement, counter);
+			} else if (isConditionalOperator(statement, counter)) {
+				openOperands = push(openOperands, openOperandsCount++, operandsCount++);
+				counter += 2;
+			} else if (statement.charAt(counter) == '?' || statement.charAt(counter) == ',') {
+				groupsSplit[groupsCount - 1] = 0;
+				counter++;
+			} else if (statement.charAt(counter) == '(') {
+				groupsSplit = push(groupsSplit, groupsCount, 1);
+				groupStarts = push(groupStarts, groupsCount++, openOperandsCount);
+				openOperands = push(openOperands, openOperandsCount++, operandsCount++);
+				counter++;
 			} else {
-				statementBuilder.append(chars[counter++]);
+				counter++;
 			}
 		}
+		return operandPredicates;
+	}
 
-		if (insertPredicate) {
-			String predicate = "P" + predicateId + "_" + booleanCounter.getAndIncrement();
-			if (endIndex == -1) {
-				endIndex = statementBuilder.length();
+	/**
+	 * Processes the condition of a statement. Each operand of the '&&' and '||'
+	 * operators gets wrapped into the assignment of its predicate, i.e.
+	 * (Pn_m=(operand)). The condition is scanned twice, first to number the
+	 * predicates and then to emit the converted condition.
+	 * 
+	 * @param statement   The condition
+	 * @param predicateId The predicate id
+	 * @return The processed statement information
+	 */
+	public static ProcessedStatementInfo processStatement(String statement, Integer predicateId) {
+
+		int[] operandPredicates = numberOperands(statement);
+		String predicatePrefix = "(P" + predicateId + "_";
+		int totalChars = statement.length();
+		StringBuilder statementBuilder = new StringBuilder(totalChars * 2);
+		int[] openOperands = new int[16];
+		int openOperandsCount = 0;
+		int operandsCount = 0;
+		int predicatesCount = 0;
+
+		openOperands = push(openOperands, openOperandsCount++, operandsCount);
+		predicatesCount += appendPredicateStart(statementBuilder, predicatePrefix, operandPredicates[operandsCount++]);
+		int counter = 0;
+		while (counter < totalChars) {
+			char character = statement.charAt(counter);
+			if (character == '"' || character == '\'') {
+				int literalEnd = JavaLexer.skipLiteral(statement, counter);
+				statementBuilder.append(statement, counter, literalEnd);
+				counter = literalEnd;
+			} else if (isLambdaArrow(statement, counter)) {
+				int lambdaEnd = skipLambda(statement, counter);
+				statementBuilder.append(statement, counter, lambdaEnd);
+				counter = lambdaEnd;
+			} else if (isConditionalOperator(statement, counter) && operandPredicates[operandsCount] == NOT_SPLIT) {
+				statementBuilder.append(statement, counter, counter + 2);
+				operandsCount++;
+				counter += 2;
+			} else if (isConditionalOperator(statement, counter)) {
+				appendPredicateEnd(statementBuilder, operandPredicates[openOperands[openOperandsCount - 1]]);
+				statementBuilder.append(statement, counter, counter + 2);
+				openOperands[openOperandsCount - 1] = operandsCount;
+				predicatesCount += appendPredicateStart(statementBuilder, predicatePrefix,
+						operandPredicates[operandsCount++]);
+				counter += 2;
+			} else if (character == '(') {
+				statementBuilder.append(character);
+				openOperands = push(openOperands, openOperandsCount++, operandsCount);
+				predicatesCount += appendPredicateStart(statementBuilder, predicatePrefix,
+						operandPredicates[operandsCount++]);
+				counter++;
+			} else if (character == ')' && openOperandsCount > 1) {
+				appendPredicateEnd(statementBuilder, operandPredicates[openOperands[--openOperandsCount]]);
+				statementBuilder.append(character);
+				counter++;
+			} else {
+				statementBuilder.append(character);
+				counter++;
 			}
-			statementBuilder.insert(endIndex, "))");
-			statementBuilder.insert(0, "(" + predicate + "=" + "(");
-			predicates.add(predicate);
 		}
+		while (openOperandsCount > 0) {
+			appendPredicateEnd(statementBuilder, operandPredicates[openOperands[--openOperandsCount]]);
+		}
+
+		List<String> predicates = new ArrayList<>(predicatesCount);
+		for (int i = 0; i < predicatesCount; i++) {
+			predicates.add("P" + predicateId + "_" + i);
+		}
+
+		ProcessedStatementInfo processedStatementInfo = new ProcessedStatementInfo();
 		processedStatementInfo.setConvertedStatement(statementBuilder.toString());
 		processedStatementInfo.setPredicates(predicates);
 		processedStatementInfo.setPredicateStatement("");
@@ -162,31 +288,71 @@ public class PredicateParser {
 	}
 
 	/**
-	 * Processes the 'if' statement
+	 * Appends the start of the predicate assignment wrapping an operand
+	 * 
+	 * @return 1 if the operand is wrapped, otherwise 0
+	 */
+	private static int appendPredicateStart(StringBuilder statementBuilder, String predicatePrefix, int predicate) {
+
+		if (predicate < 0) {
+			return 0;
+		}
+		statementBuilder.append(predicatePrefix).append(predicate).append("=(");
+		return 1;
+	}
+
+	/**
+	 * Appends the end of the predicate assignment wrapping an operand
+	 */
+	private static void appendPredicateEnd(StringBuilder statementBuilder, int predicate) {
+
+		if (predicate >= 0) {
+			statementBuilder.append("))");
+		}
+	}
+
+	/**
+	 * Gets the control of the statement header
 	 * 
 	 * @param statement The statement
+	 * @param header    The header prefix, ending with the opening parenthesis
+	 * @return The trimmed control, or null if the header is not found or is
+	 *         followed by more than the opening brace
+	 */
+	private static String getControl(String statement, String header) {
+
+		int controlStart = HeaderMatcher.findControlStart(statement, header);
+		if (controlStart == -1) {
+			return null;
+		}
+		int controlEnd = HeaderMatcher.findControlEnd(statement, controlStart);
+		if (controlEnd == -1 || !HeaderMatcher.isHeaderEnd(statement, controlEnd + 1, '{')) {
+			return null;
+		}
+		return statement.substring(controlStart, controlEnd).trim();
+	}
+
+	/**
+	 * Processes the 'if' statement
+	 * 
+	 * @param statement        The statement
+	 * @param predicateCounter The predicate counter of the file being processed
 	 * @return The processed predicate information
 	 */
-	public static PredicateInfo processIfStatement(String statement) {
+	public static PredicateInfo processIfStatement(String statement, AtomicInteger predicateCounter) {
 
-		Matcher matcher = IF_PATTERN.matcher(statement);
-		if (matcher.find()) {
-			String control = matcher.group(2).trim();
+		Object rewriteEvent = Events.beginStatementRewrite();
+		String control = getControl(statement, IF_HEADER);
+		if (control != null) {
 			if (!StringUtils.equals("true", control)) {
-				Integer counter = predicateCounter.getAndIncrement();
-				booleanCounter = new AtomicInteger();
-				ProcessedStatementInfo processedStatementInfo = processStatement(control, counter, true);
-				String predicateName = "P" + counter;
-				StringBuilder predicateInitStatementBuilder = new StringBuilder();
-				for (String predicate : processedStatementInfo.getPredicates()) {
-					predicateInitStatementBuilder
-							.append(StringUtils.join("boolean", " ", predicate, "=", "false", ";"));
-				}
-
-				String convertedStatement = StringUtils.join("if(", processedStatementInfo.getConvertedStatement(), ")",
-						"{");
-				return new PredicateInfo(predicateName, "IF", processedStatementInfo.getConvertedStatement(),
-						predicateInitStatementBuilder.toString(), convertedStatement);
+				int counter = predicateCounter.getAndIncrement();
+				ProcessedStatementInfo processedStatementInfo = processStatement(control, counter);
+				String convertedControl = processedStatementInfo.getConvertedStatement();
+				int predicatesCount = processedStatementInfo.getPredicates().size();
+				String convertedStatement = StringUtils.join(IF_PREFIX, convertedControl, ")", "{");
+				Events.commitStatementRewrite(rewriteEvent, PredicateType.IF.getLabel(), control, predicatesCount);
+				return new PredicateInfo(counter, PredicateType.IF, convertedStatement, IF_PREFIX.length(),
+						convertedControl.length(), predicatesCount);
 			}
 		}
 		return null;
@@ -195,29 +361,25 @@ public class PredicateParser {
 	/**
 	 * Processes the 'else-if' statement
 	 * 
-	 * @param statement The statement
+	 * @param statement        The statement
+	 * @param predicateCounter The predicate counter of the file being processed
 	 * @return The processed predicate information
 	 */
-	public static PredicateInfo processElseIfStatement(String statement) {
+	public static PredicateInfo processElseIfStatement(String statement, AtomicInteger predicateCounter) {
 
-		Matcher matcher = ELSE_IF_PATTERN.matcher(statement);
-		if (matcher.find()) {
-			String control = matcher.group(2).trim();
+		Object rewriteEvent = Events.beginStatementRewrite();
+		String control = getControl(statement, ELSE_IF_HEADER);
+		if (control != null) {
 			if (!StringUtils.equals("true", control)) {
-				Integer counter = predicateCounter.getAndIncrement();
-				booleanCounter = new AtomicInteger();
-				ProcessedStatementInfo processedStatementInfo = processStatement(control, counter, true);
-				String predicateName = "P" + counter;
-				StringBuilder predicateInitStatementBuilder = new StringBuilder();
-				for (String predicate : processedStatementInfo.getPredicates()) {
-					predicateInitStatementBuilder
-							.append(StringUtils.join("boolean", " ", predicate, "=", "false", ";"));
-				}
-
-				String convertedStatement = StringUtils.join("else if(", processedStatementInfo.getConvertedStatement(),
-						")", "{");
-				return new PredicateInfo(predicateName, "ELSE-IF", processedStatementInfo.getConvertedStatement(),
-						predicateInitStatementBuilder.toString(), convertedStatement);
+				int counter = predicateCounter.getAndIncrement();
+				ProcessedStatementInfo processedStatementInfo = processStatement(control, counter);
+				String convertedControl = processedStatementInfo.getConvertedStatement();
+				int predicatesCount = processedStatementInfo.getPredicates().size();
+				String convertedStatement = StringUtils.join(ELSE_IF_PREFIX, convertedControl, ")", "{");
+				Events.commitStatementRewrite(rewriteEvent, PredicateType.ELSE_IF.getLabel(), control,
+						predicatesCount);
+				return new PredicateInfo(counter, PredicateType.ELSE_IF, convertedStatement, ELSE_IF_PREFIX.length(),
+						convertedControl.length(), predicatesCount);
 			}
 		}
 		return null;
@@ -226,30 +388,34 @@ public class PredicateParser {
 	/**
 	 * Processes the 'for' statement
 	 * 
-	 * @param statement The statement
+	 * @param statement        The statement
+	 * @param predicateCounter The predicate counter of the file being processed
 	 * @return The processed predicate information
 	 */
-	public static PredicateInfo processForStatement(String statement) {
-
-		Matcher matcher = FOR_PATTERN.matcher(statement);
-		if (matcher.find()) {
-			String control = matcher.group(2).trim();
+	public static PredicateInfo processForStatement(String statement, AtomicInteger predicateCounter) {
+
+		Object rewriteEvent = Events.beginStatementRewrite();
+		int controlStart = HeaderMatcher.findControlStart(statement, FOR_HEADER);
+		int controlEnd = controlStart == -1 ? -1 : HeaderMatcher.findControlEnd(statement, controlStart);
+		int conditionStart = controlEnd == -1 ? -1
+				: HeaderMatcher.findSeparator(statement, controlStart, controlEnd, ';') + 1;
+		int conditionEnd = conditionStart <= 0 ? -1
+				: HeaderMatcher.findSeparator(statement, conditionStart, controlEnd, ';');
+		if (conditionEnd != -1 && HeaderMatcher.findSeparator(statement, conditionEnd + 1, controlEnd, ';') == -1
+				&& HeaderMatcher.isHeaderEnd(statement, controlEnd + 1, '{')) {
+			String control = statement.substring(conditionStart, conditionEnd).trim();
 			if (StringUtils.isNotBlank(control) && !StringUtils.equals("true", control)) {
 
-				Integer counter = predicateCounter.getAndIncrement();
-				booleanCounter = new AtomicInteger();
-				ProcessedStatementInfo processedStatementInfo = processStatement(control, counter, true);
-				String predicateName = "P" + counter;
-				StringBuilder predicateInitStatementBuilder = new StringBuilder();
-				for (String predicate : processedStatementInfo.getPredicates()) {
-					predicateInitStatementBuilder
-							.append(StringUtils.join("boolean", " ", predicate, "=", "false", ";"));
-				}
-
-				String convertedStatement = StringUtils.join("for(", matcher.group(1), ";",
-						processedStatementInfo.getConvertedStatement(), ";", matcher.group(3), ")", "{");
-				return new PredicateInfo(predicateName, "FOR", processedStatementInfo.getConvertedStatement(),
-						predicateInitStatementBuilder.toString(), convertedStatement);
+				int counter = predicateCounter.getAndIncrement();
+				ProcessedStatementInfo processedStatementInfo = processStatement(control, counter);
+				String convertedControl = processedStatementInfo.getConvertedStatement();
+				int predicatesCount = processedStatementInfo.getPredicates().size();
+				String initialization = statement.substring(controlStart, conditionStart - 1);
+				String convertedStatement = StringUtils.join(FOR_PREFIX, initialization, ";", convertedControl, ";",
+						statement.substring(conditionEnd + 1, controlEnd), ")", "{");
+				Events.commitStatementRewrite(rewriteEvent, PredicateType.FOR.getLabel(), control, predicatesCount);
+				return new PredicateInfo(counter, PredicateType.FOR, convertedStatement,
+						FOR_PREFIX.length() + initialization.length() + 1, convertedControl.length(), predicatesCount);
 			}
 		}
 		return null;
@@ -258,29 +424,24 @@ public class PredicateParser {
 	/**
 	 * Processes the 'while' statement
 	 * 
-	 * @param statement The statement
+	 * @param statement        The statement
+	 * @param predicateCounter The predicate counter of the file being processed
 	 * @return The processed predicate information
 	 */
-	public static PredicateInfo processWhileStatement(String statement) {
+	public static PredicateInfo processWhileStatement(String statement, AtomicInteger predicateCounter) {
 
-		Matcher matcher = WHILE_PATTERN.matcher(statement);
-		if (matcher.find()) {
-			String control = matcher.group(2).trim();
+		Object rewriteEvent = Events.beginStatementRewrite();
+		String control = getControl(statement, WHILE_HEADER);
+		if (control != null) {
 			if (!StringUtils.equals("true", control)) {
-				Integer counter = predicateCounter.getAndIncrement();
-				booleanCounter = new AtomicInteger();
-				ProcessedStatementInfo processedStatementInfo = processStatement(control, counter, true);
-				String predicateName = "P" + counter;
-				StringBuilder predicateInitStatementBuilder = new StringBuilder();
-				for (String predicate : processedStatementInfo.getPredicates()) {
-					predicateInitStatementBuilder
-							.append(StringUtils.join("boolean", " ", predicate, "=", "false", ";"));
-				}
-
-				String convertedStatement = StringUtils.join("while(", processedStatementInfo.getConvertedStatement(),
-						")", "{");
-				return new PredicateInfo(predicateName, "WHILE", processedStatementInfo.getConvertedStatement(),
-						predicateInitStatementBuilder.toString(), convertedStatement);
+				int counter = predicateCounter.getAndIncrement();
+				ProcessedStatementInfo processedStatementInfo = processStatement(control, counter);
+				String convertedControl = processedStatementInfo.getConvertedStatement();
+				int predicatesCount = processedStatementInfo.getPredicates().size();
+				String convertedStatement = StringUtils.join(WHILE_PREFIX, convertedControl, ")", "{");
+				Events.commitStatementRewrite(rewriteEvent, PredicateType.WHILE.getLabel(), control, predicatesCount);
+				return new PredicateInfo(counter, PredicateType.WHILE, convertedStatement, WHILE_PREFIX.length(),
+						convertedControl.length(), predicatesCount);
 			}
 		}
 		return null;
@@ -289,19 +450,25 @@ public class PredicateParser {
 	/**
 	 * Processes the 'do-while' statement
 	 * 
-	 * @param statement The statement
+	 * @param statement        The statement
+	 * @param predicateCounter The predicate counter of the file being processed
 	 * @return The processed predicate information
 	 */
-	public static PredicateInfo processDoWhileStatement(String statement) {
-
-		Matcher matcher = DO_WHILE_PATTERN.matcher(statement);
-		if (matcher.find()) {
-			String control = matcher.group(2).trim();
+	public static PredicateInfo processDoWhileStatement(String statement, AtomicInteger predicateCounter) {
+
+		Object rewriteEvent = Events.beginStatementRewrite();
+		int controlStart = HeaderMatcher.findControlStart(statement, DO_WHILE_HEADER);
+		int controlEnd = controlStart == -1 ? -1 : HeaderMatcher.findControlEnd(statement, controlStart);
+		if (controlEnd != -1 && controlEnd + 1 < statement.length() && statement.charAt(controlEnd + 1) == ';'
+				&& HeaderMatcher.isHeaderEnd(statement, controlEnd + 2, ';')) {
+			String control = statement.substring(controlStart, controlEnd).trim();
 			if (!StringUtils.equals("true", control)) {
-				String predicateName = "P" + predicateCounter.getAndIncrement();
-				String predicateInitStatement = StringUtils.join("boolean", " ", predicateName, "=", "false", ";");
-				String convertedStatement = StringUtils.join("} while(", predicateName, "=", control, ")", ";");
-				return new PredicateInfo(predicateName, "DO-WHILE", control, predicateInitStatement, convertedStatement);
+				int counter = predicateCounter.getAndIncrement();
+				String assignment = DO_WHILE_PREFIX + "P" + counter + "=";
+				String convertedStatement = StringUtils.join(assignment, control, ")", ";");
+				Events.commitStatementRewrite(rewriteEvent, PredicateType.DO_WHILE.getLabel(), control, 1);
+				return new PredicateInfo(counter, PredicateType.DO_WHILE, convertedStatement, assignment.length(),
+						control.length(), 1);
 			}
 		}
 		return null;
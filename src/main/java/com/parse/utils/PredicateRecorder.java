@@ -1,17 +1,9 @@
 package com.parse.utils;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
 
@@ -24,72 +16,109 @@ import com.parse.models.PredicateInfo;
 public class PredicateRecorder {
 
 	/**
-	 * The predicate pattern
+	 * The separator of the file path and the predicate name in a predicate key
 	 */
-	private static final Pattern PREDICATE_PATTERN = Pattern.compile("(boolean )?(P_\\d+) \\=.*");
+	public static final String KEY_SEPARATOR = "#";
 
 	private PredicateRecorder() {
 		// Its a utility class. Thus instantiation is not allowed.
 	}
 
 	/**
-	 * Gets the file name
+	 * Gets the path of the code file relative to the root directory, with '/'
+	 * separators. The same file gets the same relative path whether it is given
+	 * as an absolute or a relative path. A file outside the root directory, or
+	 * without one, is named by its file name.
 	 * 
-	 * @return The file name
+	 * @param codePath The code path
+	 * @param rootPath The root directory, or null
+	 * @return The relative path
 	 */
-	private static String getFileName(Path codePath) {
+	public static String getRelativePath(Path codePath, Path rootPath) {
 
-		String completeFileName = codePath.toString().substring(codePath.toString().lastIndexOf(File.separator) + 1);
-		return completeFileName.substring(0, completeFileName.lastIndexOf("."));
+		Path absolutePath = codePath.toAbsolutePath().normalize();
+		Path relativePath = absolutePath.getFileName();
+		if (rootPath != null) {
+			Path absoluteRootPath = rootPath.toAbsolutePath().normalize();
+			if (absolutePath.startsWith(absoluteRootPath) && !absolutePath.equals(absoluteRootPath)) {
+				relativePath = absoluteRootPath.relativize(absolutePath);
+			}
+		}
+		return relativePath.toString().replace(File.separatorChar, '/');
 	}
 
 	/**
-	 * Creates the predicate file
+	 * Gets the path of the predicate file. The predicate files mirror the
+	 * directory layout of the code files, thus the files of the same name in
+	 * different directories get their own predicate file.
 	 * 
-	 * @param codePath          The code path
-	 * @param outputDirectory   The output directory
+	 * @param relativePath    The relative path of the code file
+	 * @param outputDirectory The output directory
+	 * @return The predicate file path
+	 */
+	public static Path getRecordPath(String relativePath, Path outputDirectory) {
+
+		int extensionStart = relativePath.lastIndexOf('.');
+		if (extensionStart <= relativePath.lastIndexOf('/')) {
+			extensionStart = relativePath.length();
+		}
+		return outputDirectory.resolve(relativePath.substring(0, extensionStart) + ".txt");
+	}
+
+	/**
+	 * Gets the key of the predicate. The predicates are numbered per file, thus
+	 * the key holds the relative path of the file and the predicate name, e.g.
+	 * "a/B.java#P0".
+	 * 
+	 * @param relativePath  The relative path of the code file
+	 * @param predicateInfo The predicate info
+	 * @return The predicate key
+	 */
+	public static String getKey(String relativePath, PredicateInfo predicateInfo) {
+		return relativePath + KEY_SEPARATOR + predicateInfo.getName();
+	}
+
+	/**
+	 * Moves the controls of the predicates of a file into one shared text, so
+	 * the converted statements they were parsed from are released. The
+	 * predicates of a run stay in memory until the index is written, each file
+	 * then holds one string rather than one per predicate.
 	 * 
 	 * @param predicateInfoList The predicates info list
 	 */
-	public static void create(Path codePath, Path outputDirectory, List<PredicateInfo> predicateInfoList) {
+	public static void shareControls(List<PredicateInfo> predicateInfoList) {
 
-		HashMap<String, String> predicateLineNumberMap = new HashMap<>();
-		predicateInfoList.forEach(predicateInfo -> predicateLineNumberMap.put(predicateInfo.getName(), ""));
+		StringBuilder controlsBuilder = new StringBuilder();
+		for (PredicateInfo predicateInfo : predicateInfoList) {
+			controlsBuilder.append(predicateInfo.getText(), predicateInfo.getControlOffset(),
+					predicateInfo.getControlOffset() + predicateInfo.getControlLength());
+		}
+		String controls = controlsBuilder.toString();
+		int controlOffset = 0;
+		for (PredicateInfo predicateInfo : predicateInfoList) {
+			predicateInfo.relocate(controls, controlOffset);
+			controlOffset += predicateInfo.getControlLength();
+		}
+	}
 
-		try (BufferedWriter writer = new BufferedWriter(new FileWriter(
-				Paths.get(outputDirectory.toString() + File.separator + getFileName(codePath) + ".txt").toFile()))) {
-			List<String> lines = Files.readAllLines(codePath);
-			Integer lineNumber = 1;
-			for (String line : lines) {
-				Matcher matcher = PREDICATE_PATTERN.matcher(line.trim());
-				if (matcher.find()) {
-					String predicate = matcher.group(2);
-					if (predicateLineNumberMap.containsKey(predicate)) {
-						String value = predicateLineNumberMap.get(predicate);
-						if (StringUtils.isBlank(value)) {
-							predicateLineNumberMap.put(predicate, lineNumber.toString());
-						} else {
-							predicateLineNumberMap.put(predicate, value + ", " + lineNumber.toString());
-						}
-					}
-				}
-				lineNumber++;
-			}
+	/**
+	 * Gets the predicate record. Each line holds the key, the control, the type
+	 * and the line number of a predicate in the instrumented code.
+	 * 
+	 * @param relativePath      The relative path of the code file
+	 * @param predicateInfoList The predicates info list
+	 * @return The predicate record
+	 */
+	public static String getRecord(String relativePath, List<PredicateInfo> predicateInfoList) {
 
-			predicateInfoList.forEach(predicateInfo -> {
-				try {
-					writer.append(StringUtils.join(
-							Arrays.asList(predicateInfo.getName(), predicateInfo.getControl().trim(),
-									predicateInfo.getType(), predicateLineNumberMap.get(predicateInfo.getName())),
-							", "));
-					writer.newLine();
-				} catch (IOException ioException) {
-					ioException.printStackTrace();
-				}
-			});
-			writer.flush();
-		} catch (IOException ioException) {
-			System.out.println("Error recording the predicates.");
+		StringBuilder recordBuilder = new StringBuilder();
+		for (PredicateInfo predicateInfo : predicateInfoList) {
+			recordBuilder.append(StringUtils.join(Arrays.asList(getKey(relativePath, predicateInfo),
+					predicateInfo.getControl().trim(), predicateInfo.getType().getLabel(),
+					predicateInfo.getLineNumber() == 0 ? "" : String.valueOf(predicateInfo.getLineNumber())),
+					", "));
+			recordBuilder.append(System.lineSeparator());
 		}
+		return recordBuilder.toString();
 	}
 }
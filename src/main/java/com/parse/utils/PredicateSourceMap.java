@@ -0,0 +1,156 @@
+package com.parse.utils;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.parse.models.PredicateInfo;
+import com.parse.models.PredicateType;
+
+/**
+ * The PredicateSourceMap. It maps the predicates of a file to their positions
+ * in the instrumented code. The instrumenter relocates the control of each
+ * predicate into the code it emits, thus the emitted position of each
+ * predicate is known and nothing is searched for. The formatting after the
+ * instrumentation only changes the whitespace and the comments of the code,
+ * and reorders the modifiers in place, so the n-th character outside the
+ * whitespace and the comments of the emitted code is the n-th one of the
+ * formatted code. Both codes are walked once, side by side.
+ */
+public class PredicateSourceMap {
+
+	/**
+	 * The Cursor. It walks the characters of the code which the formatting
+	 * keeps, i.e. all but the whitespace and the comments. The string and
+	 * character literals are kept whole.
+	 */
+	private static class Cursor {
+
+		private final String code;
+
+		private int counter;
+
+		private int literalEnd;
+
+		private Cursor(String code) {
+			this.code = code;
+		}
+
+		/**
+		 * Moves to the next kept character
+		 *
+		 * @return The offset of the character, or -1 at the end of the code
+		 */
+		private int next() {
+
+			int totalChars = code.length();
+			while (counter < totalChars) {
+				if (counter < literalEnd) {
+					return counter++;
+				}
+				char character = code.charAt(counter);
+				if (Character.isWhitespace(character)) {
+					counter++;
+				} else if (character == '/' && code.startsWith("//", counter)) {
+					int lineEnd = code.indexOf('\n', counter);
+					counter = lineEnd == -1 ? totalChars : lineEnd;
+				} else if (character == '/' && code.startsWith("/*", counter)) {
+					int commentEnd = code.indexOf("*/", counter + 2);
+					counter = commentEnd == -1 ? totalChars : commentEnd + 2;
+				} else {
+					if (character == '"' || character == '\'') {
+						literalEnd = JavaLexer.skipLiteral(code, counter);
+					}
+					return counter++;
+				}
+			}
+			return -1;
+		}
+	}
+
+	/**
+	 * The predicates, in the order of their ids
+	 */
+	private final List<PredicateInfo> predicateInfoList;
+
+	public PredicateSourceMap(List<PredicateInfo> predicateInfoList) {
+		this.predicateInfoList = predicateInfoList;
+	}
+
+	/**
+	 * Gets the emitted offset a predicate is positioned at, i.e. its first
+	 * predicate variable. The control of a 'do-while' statement is assigned to
+	 * the predicate, the other controls start with the assignment of their
+	 * first operand.
+	 *
+	 * @param predicateInfo The predicate info
+	 * @param emittedCode   The emitted code
+	 * @return The offset, or -1 if the predicate is not in the emitted code
+	 */
+	private static int getAnchor(PredicateInfo predicateInfo, String emittedCode) {
+
+		if (predicateInfo.getText() != emittedCode) {
+			return -1;
+		}
+		String name = predicateInfo.getName();
+		int anchor = predicateInfo.getType() == PredicateType.DO_WHILE
+				? predicateInfo.getControlOffset() - name.length() - 1
+				: predicateInfo.getControlOffset() + 1;
+		return anchor >= 0 && emittedCode.startsWith(name, anchor) ? anchor : -1;
+	}
+
+	/**
+	 * Locates the predicates in the formatted code. The line and column
+	 * numbers of each predicate found get updated.
+	 *
+	 * @param code The formatted code, or the emitted code if it is not
+	 *             formatted
+	 */
+	public void locate(String code) {
+
+		if (predicateInfoList.isEmpty()) {
+			return;
+		}
+
+		// Sorting the predicates by their emitted offset, since the condition of a
+		// 'do-while' loop is emitted after the predicates of its body
+		String emittedCode = predicateInfoList.get(0).getText();
+		long[] anchors = new long[predicateInfoList.size()];
+		int anchorsCount = 0;
+		for (int i = 0; i < predicateInfoList.size(); i++) {
+			int anchor = getAnchor(predicateInfoList.get(i), emittedCode);
+			if (anchor != -1) {
+				anchors[anchorsCount++] = (long) anchor << 32 | i;
+			}
+		}
+		Arrays.sort(anchors, 0, anchorsCount);
+
+		Cursor emittedCursor = new Cursor(emittedCode);
+		Cursor cursor = new Cursor(code);
+		int lineNumber = 1;
+		int lineStart = 0;
+		for (int i = 0; i < anchorsCount; i++) {
+			int anchor = (int) (anchors[i] >>> 32);
+			int offset;
+			int emittedOffset;
+			do {
+				emittedOffset = emittedCursor.next();
+				offset = cursor.next();
+			} while (emittedOffset != -1 && emittedOffset < anchor);
+			if (emittedOffset != anchor || offset == -1) {
+				break;
+			}
+
+			int lineEnd = code.indexOf('\n', lineStart);
+			while (lineEnd != -1 && lineEnd < offset) {
+				lineNumber++;
+				lineStart = lineEnd + 1;
+				lineEnd = code.indexOf('\n', lineStart);
+			}
+			PredicateInfo predicateInfo = predicateInfoList.get((int) anchors[i]);
+			if (code.startsWith(predicateInfo.getName(), offset)) {
+				predicateInfo.setLineNumber(lineNumber);
+				predicateInfo.setColumnNumber(offset - lineStart + 1);
+			}
+		}
+	}
+}
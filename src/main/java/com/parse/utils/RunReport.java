@@ -0,0 +1,333 @@
+package com.parse.utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.ToLongFunction;
+
+import com.parse.models.FileMetrics;
+import com.parse.models.Phase;
+import com.parse.models.StageMetrics;
+
+/**
+ * The RunReport. It collects the metrics of the files instrumented by a run
+ * and summarizes them: the throughput, the p50, p95 and max times per phase,
+ * the queue depths of the pipeline stages and the slowest files. The
+ * percentiles of a phase only cover the files which went through it.
+ */
+public class RunReport {
+
+	/**
+	 * The count of the slowest files to report
+	 */
+	private static final int SLOWEST_FILES_COUNT = 10;
+
+	/**
+	 * The nanoseconds per millisecond
+	 */
+	private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+	/**
+	 * The metrics of the files
+	 */
+	private final Queue<FileMetrics> fileMetricsQueue = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * The metrics of the pipeline stages, if the run used the pipeline
+	 */
+	private final Queue<StageMetrics> stageMetricsQueue = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * The start time of the run
+	 */
+	private final long startTime = System.nanoTime();
+
+	/**
+	 * The end time of the run, or 0 if it is still running
+	 */
+	private volatile long endTime;
+
+	/**
+	 * Adds the metrics of a file
+	 *
+	 * @param fileMetrics The file metrics
+	 */
+	public void add(FileMetrics fileMetrics) {
+		fileMetricsQueue.add(fileMetrics);
+	}
+
+	/**
+	 * Adds the metrics of a pipeline stage
+	 *
+	 * @param stageMetrics The stage metrics
+	 */
+	public void addStageMetrics(StageMetrics stageMetrics) {
+		stageMetricsQueue.add(stageMetrics);
+	}
+
+	/**
+	 * Marks the end of the run
+	 */
+	public void finish() {
+		endTime = System.nanoTime();
+	}
+
+	/**
+	 * Gets the elapsed time of the run
+	 *
+	 * @return The elapsed time in nanoseconds
+	 */
+	public long getElapsedTime() {
+		return (endTime != 0 ? endTime : System.nanoTime()) - startTime;
+	}
+
+	/**
+	 * Gets the metrics of the files
+	 *
+	 * @return The file metrics, in completion order
+	 */
+	public List<FileMetrics> getFileMetrics() {
+		return new ArrayList<>(fileMetricsQueue);
+	}
+
+	/**
+	 * Converts the nanoseconds to milliseconds
+	 */
+	private static String toMillis(long nanos) {
+		return String.format(Locale.ROOT, "%.3f", nanos / NANOS_PER_MILLI);
+	}
+
+	/**
+	 * Gets the sorted times of the phase, skipping the files which did not go
+	 * through it
+	 */
+	private static long[] getSortedTimes(List<FileMetrics> fileMetricsList, Phase phase,
+			ToLongFunction<FileMetrics> time) {
+
+		long[] times = new long[fileMetricsList.size()];
+		int timesCount = 0;
+		for (FileMetrics fileMetrics : fileMetricsList) {
+			if (fileMetrics.getWallTime(phase) > 0) {
+				times[timesCount++] = time.applyAsLong(fileMetrics);
+			}
+		}
+		times = Arrays.copyOf(times, timesCount);
+		Arrays.sort(times);
+		return times;
+	}
+
+	/**
+	 * Gets the percentile of the sorted times, by the nearest rank
+	 */
+	private static long getPercentile(long[] sortedTimes, int percentile) {
+
+		if (sortedTimes.length == 0) {
+			return 0;
+		}
+		int rank = (int) Math.ceil(percentile / 100.0 * sortedTimes.length);
+		return sortedTimes[Math.max(0, rank - 1)];
+	}
+
+	/**
+	 * Gets the files sorted by the descending total wall-clock time
+	 */
+	private static List<FileMetrics> getSlowestFiles(List<FileMetrics> fileMetricsList) {
+
+		List<FileMetrics> slowestFiles = new ArrayList<>(fileMetricsList);
+		slowestFiles.sort(Comparator.comparingLong(FileMetrics::getTotalWallTime).reversed());
+		return slowestFiles.subList(0, Math.min(SLOWEST_FILES_COUNT, slowestFiles.size()));
+	}
+
+	/**
+	 * Gets the name of the phase
+	 */
+	private static String getName(Phase phase) {
+		return phase.name().toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Builds the summary of the run
+	 *
+	 * @return The summary
+	 */
+	public String getSummary() {
+
+		List<FileMetrics> fileMetricsList = getFileMetrics();
+		long elapsedTime = getElapsedTime();
+		long bytes = 0;
+		long lines = 0;
+		long predicates = 0;
+		int failedFiles = 0;
+		int cachedFiles = 0;
+		for (FileMetrics fileMetrics : fileMetricsList) {
+			bytes += fileMetrics.getBytes();
+			lines += fileMetrics.getLines();
+			predicates += fileMetrics.getPredicates();
+			failedFiles += fileMetrics.isFailed() ? 1 : 0;
+			cachedFiles += fileMetrics.isCached() ? 1 : 0;
+		}
+		double seconds = Math.max(elapsedTime, 1) / 1_000_000_000.0;
+
+		StringBuilder summaryBuilder = new StringBuilder();
+		summaryBuilder.append(String.format(Locale.ROOT,
+				"Run summary: %d files (%d failed, %d cached), %d lines, %d bytes, %d predicates in %.3f s%n",
+				fileMetricsList.size(), failedFiles, cachedFiles, lines, bytes, predicates, seconds));
+		summaryBuilder.append(String.format(Locale.ROOT, "Throughput: %.1f files/s, %.0f lines/s, %.3f MB/s%n",
+				fileMetricsList.size() / seconds, lines / seconds, bytes / seconds / (1024 * 1024)));
+		summaryBuilder.append(String.format(Locale.ROOT, "%-12s %7s %12s %12s %12s %12s %12s %12s%n", "Phase (ms)",
+				"files", "wall p50", "wall p95", "wall max", "cpu p50", "cpu p95", "cpu max"));
+		for (Phase phase : Phase.values()) {
+			long[] wallTimes = getSortedTimes(fileMetricsList, phase, fileMetrics -> fileMetrics.getWallTime(phase));
+			if (wallTimes.length == 0) {
+				continue;
+			}
+			long[] cpuTimes = getSortedTimes(fileMetricsList, phase, fileMetrics -> fileMetrics.getCpuTime(phase));
+			summaryBuilder.append(String.format(Locale.ROOT, "%-12s %7d %12s %12s %12s %12s %12s %12s%n",
+					getName(phase), wallTimes.length, toMillis(getPercentile(wallTimes, 50)),
+					toMillis(getPercentile(wallTimes, 95)), toMillis(wallTimes[wallTimes.length - 1]),
+					toMillis(getPercentile(cpuTimes, 50)), toMillis(getPercentile(cpuTimes, 95)),
+					toMillis(cpuTimes[cpuTimes.length - 1])));
+		}
+		if (!stageMetricsQueue.isEmpty()) {
+			summaryBuilder.append(String.format(Locale.ROOT, "%-12s %7s %9s %9s %9s %9s%n", "Stage", "threads",
+					"queue", "files", "avg depth", "max depth"));
+			for (StageMetrics stageMetrics : stageMetricsQueue) {
+				summaryBuilder.append(String.format(Locale.ROOT, "%-12s %7d %9d %9d %9.1f %9d%n",
+						stageMetrics.getName(), stageMetrics.getThreads(), stageMetrics.getQueueCapacity(),
+						stageMetrics.getTasks(), stageMetrics.getAverageQueueDepth(),
+						stageMetrics.getMaxQueueDepth()));
+			}
+		}
+		List<FileMetrics> slowestFiles = getSlowestFiles(fileMetricsList);
+		if (!slowestFiles.isEmpty()) {
+			summaryBuilder.append("Slowest files:").append(System.lineSeparator());
+			for (FileMetrics fileMetrics : slowestFiles) {
+				summaryBuilder.append(String.format(Locale.ROOT, "%12s ms  %s (%d lines, %d predicates)%n",
+						toMillis(fileMetrics.getTotalWallTime()), fileMetrics.getFilePath(), fileMetrics.getLines(),
+						fileMetrics.getPredicates()));
+			}
+		}
+		return summaryBuilder.toString();
+	}
+
+	/**
+	 * Escapes the text as a JSON string
+	 */
+	private static String toJsonString(String text) {
+
+		StringBuilder jsonBuilder = new StringBuilder(text.length() + 2).append('"');
+		for (int i = 0; i < text.length(); i++) {
+			char character = text.charAt(i);
+			if (character == '"' || character == '\\') {
+				jsonBuilder.append('\\').append(character);
+			} else if (character < ' ') {
+				jsonBuilder.append(String.format("\\u%04x", (int) character));
+			} else {
+				jsonBuilder.append(character);
+			}
+		}
+		return jsonBuilder.append('"').toString();
+	}
+
+	/**
+	 * Writes the JSON object of the phase times of a file
+	 */
+	private static void writeFileTimes(BufferedWriter writer, FileMetrics fileMetrics,
+			ToLongFunction<Phase> time) throws IOException {
+
+		writer.write('{');
+		boolean first = true;
+		for (Phase phase : Phase.values()) {
+			if (fileMetrics.getWallTime(phase) > 0) {
+				writer.write((first ? "" : ", ") + toJsonString(getName(phase)) + ": "
+						+ toMillis(time.applyAsLong(phase)));
+				first = false;
+			}
+		}
+		writer.write('}');
+	}
+
+	/**
+	 * Writes the JSON object of a file
+	 */
+	private static void writeFile(BufferedWriter writer, FileMetrics fileMetrics) throws IOException {
+
+		writer.write("{\"path\": " + toJsonString(fileMetrics.getFilePath().toString()) + ", \"failed\": "
+				+ fileMetrics.isFailed() + ", \"cached\": " + fileMetrics.isCached() + ", \"bytes\": "
+				+ fileMetrics.getBytes() + ", \"lines\": " + fileMetrics.getLines() + ", \"predicates\": "
+				+ fileMetrics.getPredicates() + ", \"wallMillis\": " + toMillis(fileMetrics.getTotalWallTime())
+				+ ", \"cpuMillis\": " + toMillis(fileMetrics.getTotalCpuTime()) + ", \"phaseWallMillis\": ");
+		writeFileTimes(writer, fileMetrics, fileMetrics::getWallTime);
+		writer.write(", \"phaseCpuMillis\": ");
+		writeFileTimes(writer, fileMetrics, fileMetrics::getCpuTime);
+		writer.write('}');
+	}
+
+	/**
+	 * Writes the JSON object of the percentiles of the sorted times
+	 */
+	private static String toJsonPercentiles(long[] sortedTimes) {
+		return "{\"p50\": " + toMillis(getPercentile(sortedTimes, 50)) + ", \"p95\": "
+				+ toMillis(getPercentile(sortedTimes, 95)) + ", \"max\": "
+				+ toMillis(sortedTimes.length == 0 ? 0 : sortedTimes[sortedTimes.length - 1]) + "}";
+	}
+
+	/**
+	 * Writes the report as JSON, including the metrics of every file
+	 *
+	 * @param reportPath The report file path
+	 * @throws IOException If the report could not be written
+	 */
+	public void write(Path reportPath) throws IOException {
+
+		List<FileMetrics> fileMetricsList = getFileMetrics();
+		try (BufferedWriter writer = Files.newBufferedWriter(reportPath, StandardCharsets.UTF_8)) {
+			writer.write("{\n  \"elapsedMillis\": " + toMillis(getElapsedTime()) + ",\n  \"phases\": {");
+			boolean first = true;
+			for (Phase phase : Phase.values()) {
+				long[] wallTimes = getSortedTimes(fileMetricsList, phase,
+						fileMetrics -> fileMetrics.getWallTime(phase));
+				long[] cpuTimes = getSortedTimes(fileMetricsList, phase, fileMetrics -> fileMetrics.getCpuTime(phase));
+				writer.write((first ? "\n    " : ",\n    ") + toJsonString(getName(phase)) + ": {\"files\": "
+						+ wallTimes.length + ", \"wallMillis\": " + toJsonPercentiles(wallTimes) + ", \"cpuMillis\": "
+						+ toJsonPercentiles(cpuTimes) + "}");
+				first = false;
+			}
+			writer.write("\n  },\n  \"stages\": [");
+			first = true;
+			for (StageMetrics stageMetrics : stageMetricsQueue) {
+				writer.write((first ? "\n    " : ",\n    ") + "{\"name\": " + toJsonString(stageMetrics.getName())
+						+ ", \"threads\": " + stageMetrics.getThreads() + ", \"queueCapacity\": "
+						+ stageMetrics.getQueueCapacity() + ", \"files\": " + stageMetrics.getTasks()
+						+ ", \"averageQueueDepth\": "
+						+ String.format(Locale.ROOT, "%.3f", stageMetrics.getAverageQueueDepth())
+						+ ", \"maxQueueDepth\": " + stageMetrics.getMaxQueueDepth() + "}");
+				first = false;
+			}
+			writer.write("\n  ],\n  \"slowestFiles\": [");
+			first = true;
+			for (FileMetrics fileMetrics : getSlowestFiles(fileMetricsList)) {
+				writer.write(first ? "\n    " : ",\n    ");
+				writer.write(toJsonString(fileMetrics.getFilePath().toString()));
+				first = false;
+			}
+			writer.write("\n  ],\n  \"files\": [");
+			first = true;
+			for (FileMetrics fileMetrics : fileMetricsList) {
+				writer.write(first ? "\n    " : ",\n    ");
+				writeFile(writer, fileMetrics);
+				first = false;
+			}
+			writer.write("\n  ]\n}\n");
+		}
+	}
+}
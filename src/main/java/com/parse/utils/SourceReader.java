@@ -0,0 +1,95 @@
+package com.parse.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+
+/**
+ * The utility class SourceReader. It streams a source file through small
+ * buffers, decoding it into the builder of the code and feeding the bytes to
+ * the cache key digest on the way. No copy of the raw content is ever held in
+ * memory, and the decoded text is only copied once, into the code string.
+ */
+public class SourceReader {
+
+	/**
+	 * The read buffer size
+	 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * The largest file which fits into a string
+	 */
+	private static final long MAX_FILE_SIZE = Integer.MAX_VALUE - 8;
+
+	private SourceReader() {
+		// Its a utility class. Thus instantiation is not allowed.
+	}
+
+	/**
+	 * Appends the decoded characters to the code, emptying the character buffer
+	 *
+	 * @param code  The code
+	 * @param chars The character buffer
+	 */
+	private static void append(StringBuilder code, CharBuffer chars) {
+
+		code.append(chars.array(), 0, chars.position());
+		chars.clear();
+	}
+
+	/**
+	 * Reads the source file. The content is decoded with the default charset,
+	 * replacing the malformed input.
+	 *
+	 * @param filePath  The file path
+	 * @param keyDigest The cache key digest to update with the content, or null
+	 * @return The code
+	 * @throws IOException If the file could not be read
+	 */
+	public static String read(Path filePath, MessageDigest keyDigest) throws IOException {
+
+		try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+			CharsetDecoder decoder = Charset.defaultCharset().newDecoder()
+					.onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+			long size = channel.size();
+			if (size > MAX_FILE_SIZE) {
+				throw new IOException("The file is too large: " + size + " bytes.");
+			}
+
+			// Decoding chunk by chunk into a builder sized for one character per
+			// byte, which holds the latin-1 text compactly, thus the code is only
+			// copied once into its string
+			StringBuilder code = new StringBuilder((int) size);
+			ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+			CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+			boolean endOfInput = false;
+			while (!endOfInput) {
+				int position = bytes.position();
+				endOfInput = channel.read(bytes) == -1;
+				if (keyDigest != null) {
+					keyDigest.update(bytes.array(), position, bytes.position() - position);
+				}
+
+				bytes.flip();
+				while (decoder.decode(bytes, chars, endOfInput).isOverflow()) {
+					append(code, chars);
+				}
+				append(code, chars);
+				bytes.compact();
+			}
+			while (decoder.flush(chars).isOverflow()) {
+				append(code, chars);
+			}
+			append(code, chars);
+			return code.toString();
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package com.parse.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The utility class ThreadFactories. It provides the threads of the file
+ * reading and writing, and of the processing. The builds of the java 21
+ * profile run the reading and writing on virtual threads, thus thousands of
+ * blocking file operations can be in flight without holding a platform thread
+ * each, when the run asks for as many file threads. The processing always runs
+ * on platform threads. The virtual threads are looked up reflectively, since
+ * the default build targets java 8.
+ */
+public class ThreadFactories {
+
+	/**
+	 * The version properties resource, carrying the build flags
+	 */
+	private static final String VERSION_RESOURCE = "/version.properties";
+
+	/**
+	 * The factory of the daemon platform threads
+	 */
+	private static final ThreadFactory PLATFORM_FACTORY = runnable -> {
+		Thread thread = new Thread(runnable);
+		thread.setDaemon(true);
+		return thread;
+	};
+
+	/**
+	 * The factory of the virtual threads, or null if the build or the runtime
+	 * does not use them
+	 */
+	private static final ThreadFactory VIRTUAL_FACTORY = loadVirtualFactory();
+
+	private ThreadFactories() {
+		// Its a utility class. Thus instantiation is not allowed.
+	}
+
+	/**
+	 * Checks if the build enables the virtual threads
+	 */
+	private static boolean isVirtualThreadsBuild() {
+
+		try (InputStream inputStream = ThreadFactories.class.getResourceAsStream(VERSION_RESOURCE)) {
+			if (inputStream == null) {
+				return false;
+			}
+			Properties properties = new Properties();
+			properties.load(inputStream);
+			return Boolean.parseBoolean(properties.getProperty("virtualThreads"));
+		} catch (IOException ioException) {
+			return false;
+		}
+	}
+
+	/**
+	 * Looks up the factory of the virtual threads
+	 */
+	private static ThreadFactory loadVirtualFactory() {
+
+		if (!isVirtualThreadsBuild()) {
+			return null;
+		}
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+		} catch (ReflectiveOperationException | LinkageError exception) {
+			return null;
+		}
+	}
+
+	/**
+	 * Checks if the file reading and writing run on virtual threads
+	 *
+	 * @return If the virtual threads are used
+	 */
+	public static boolean isVirtual() {
+		return VIRTUAL_FACTORY != null;
+	}
+
+	/**
+	 * Gets the factory of the processing threads
+	 *
+	 * @return The factory of the daemon platform threads
+	 */
+	public static ThreadFactory getPlatformFactory() {
+		return PLATFORM_FACTORY;
+	}
+
+	/**
+	 * Gets the factory of the file reading and writing threads
+	 *
+	 * @return The factory of the virtual threads if they are used, otherwise
+	 *         the factory of the daemon platform threads
+	 */
+	public static ThreadFactory getIoFactory() {
+		return VIRTUAL_FACTORY != null ? VIRTUAL_FACTORY : PLATFORM_FACTORY;
+	}
+}
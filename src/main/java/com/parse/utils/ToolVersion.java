@@ -0,0 +1,60 @@
+package com.parse.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * The utility class ToolVersion. It holds the version of the build the tool is
+ * running from.
+ */
+public class ToolVersion {
+
+	/**
+	 * The version properties resource
+	 */
+	private static final String VERSION_RESOURCE = "/version.properties";
+
+	/**
+	 * The version used when the version resource is unavailable
+	 */
+	private static final String UNKNOWN_VERSION = "unknown";
+
+	/**
+	 * The tool version
+	 */
+	private static final String VERSION = load();
+
+	private ToolVersion() {
+		// Its a utility class. Thus instantiation is not allowed.
+	}
+
+	/**
+	 * Loads the version from the version resource
+	 * 
+	 * @return The project version. It does not change with each build, so a
+	 *         rebuild keeps the cache valid.
+	 */
+	private static String load() {
+
+		try (InputStream inputStream = ToolVersion.class.getResourceAsStream(VERSION_RESOURCE)) {
+			if (inputStream == null) {
+				return UNKNOWN_VERSION;
+			}
+			Properties properties = new Properties();
+			properties.load(inputStream);
+			return properties.getProperty("version", UNKNOWN_VERSION);
+		} catch (IOException ioException) {
+			return UNKNOWN_VERSION;
+		}
+	}
+
+	/**
+	 * Gets the tool version
+	 * 
+	 * @return The tool version
+	 */
+	public static String get() {
+		return VERSION;
+	}
+}
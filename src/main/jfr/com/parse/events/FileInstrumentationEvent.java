@@ -0,0 +1,102 @@
+package com.parse.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The FileInstrumentationEvent. It spans the instrumentation of a source file,
+ * from reading it to recording its predicates.
+ */
+@Name("com.parse.FileInstrumentation")
+@Label("File Instrumentation")
+@Category("Control Statement Parser")
+@Description("The instrumentation of a source file")
+@StackTrace(false)
+public class FileInstrumentationEvent extends Event {
+
+	/**
+	 * The input file path
+	 */
+	@Label("Path")
+	private String path;
+
+	/**
+	 * The instrumentation engine
+	 */
+	@Label("Engine")
+	private String engine;
+
+	/**
+	 * The formatting mode
+	 */
+	@Label("Format Mode")
+	private String formatMode;
+
+	/**
+	 * The size of the source file
+	 */
+	@Label("Size")
+	@DataAmount
+	private long bytes;
+
+	/**
+	 * The lines count of the source file
+	 */
+	@Label("Lines")
+	private int lines;
+
+	/**
+	 * The predicates count
+	 */
+	@Label("Predicates")
+	private int predicates;
+
+	/**
+	 * If the result got restored from the cache
+	 */
+	@Label("Cached")
+	private boolean cached;
+
+	/**
+	 * If the instrumentation failed
+	 */
+	@Label("Failed")
+	private boolean failed;
+
+	public void setPath(String path) {
+		this.path = path;
+	}
+
+	public void setEngine(String engine) {
+		this.engine = engine;
+	}
+
+	public void setFormatMode(String formatMode) {
+		this.formatMode = formatMode;
+	}
+
+	public void setBytes(long bytes) {
+		this.bytes = bytes;
+	}
+
+	public void setLines(int lines) {
+		this.lines = lines;
+	}
+
+	public void setPredicates(int predicates) {
+		this.predicates = predicates;
+	}
+
+	public void setCached(boolean cached) {
+		this.cached = cached;
+	}
+
+	public void setFailed(boolean failed) {
+		this.failed = failed;
+	}
+}
@@ -0,0 +1,120 @@
+package com.parse.events;
+
+import jdk.jfr.FlightRecorder;
+
+import com.parse.models.Engine;
+import com.parse.models.FileMetrics;
+import com.parse.models.FormatMode;
+
+/**
+ * The FlightRecorderEvents. It records the instrumentation events with the
+ * flight recorder API of java 11. It is loaded reflectively by
+ * {@link Events}, thus the rest of the code still builds and runs on java 8.
+ */
+public class FlightRecorderEvents implements EventRecorder {
+
+	/**
+	 * Checks if the flight recorder is running. The event classes are only
+	 * loaded then, since the recorder instruments them on loading, which would
+	 * slow the startup of the short runs.
+	 */
+	private static boolean isRecording() {
+		return FlightRecorder.isInitialized();
+	}
+
+	@Override
+	public Object beginFileInstrumentation() {
+
+		if (!isRecording()) {
+			return null;
+		}
+		FileInstrumentationEvent event = new FileInstrumentationEvent();
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void commitFileInstrumentation(Object event, FileMetrics fileMetrics, Engine engine,
+			FormatMode formatMode) {
+
+		FileInstrumentationEvent fileEvent = (FileInstrumentationEvent) event;
+		if (fileEvent.shouldCommit()) {
+			fileEvent.setPath(fileMetrics.getFilePath().toString());
+			fileEvent.setEngine(engine.toString());
+			fileEvent.setFormatMode(formatMode.toString());
+			fileEvent.setBytes(fileMetrics.getBytes());
+			fileEvent.setLines(fileMetrics.getLines());
+			fileEvent.setPredicates(fileMetrics.getPredicates());
+			fileEvent.setCached(fileMetrics.isCached());
+			fileEvent.setFailed(fileMetrics.isFailed());
+			fileEvent.commit();
+		}
+	}
+
+	@Override
+	public Object beginFormatting() {
+
+		if (!isRecording()) {
+			return null;
+		}
+		FormattingEvent event = new FormattingEvent();
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void commitFormatting(Object event, String pass, int length) {
+
+		FormattingEvent formattingEvent = (FormattingEvent) event;
+		if (formattingEvent.shouldCommit()) {
+			formattingEvent.setPass(pass);
+			formattingEvent.setLength(length);
+			formattingEvent.commit();
+		}
+	}
+
+	@Override
+	public Object beginStatementRewrite() {
+
+		if (!isRecording()) {
+			return null;
+		}
+		StatementRewriteEvent event = new StatementRewriteEvent();
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void commitStatementRewrite(Object event, String statementType, String condition, int predicates) {
+
+		StatementRewriteEvent rewriteEvent = (StatementRewriteEvent) event;
+		if (rewriteEvent.shouldCommit()) {
+			rewriteEvent.setStatementType(statementType);
+			rewriteEvent.setConditionLength(condition.length());
+			rewriteEvent.setPredicates(predicates);
+			rewriteEvent.commit();
+		}
+	}
+
+	@Override
+	public Object beginPredicateRecord() {
+
+		if (!isRecording()) {
+			return null;
+		}
+		PredicateRecordEvent event = new PredicateRecordEvent();
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void commitPredicateRecord(Object event, int predicates, int recordLength) {
+
+		PredicateRecordEvent recordEvent = (PredicateRecordEvent) event;
+		if (recordEvent.shouldCommit()) {
+			recordEvent.setPredicates(predicates);
+			recordEvent.setRecordLength(recordLength);
+			recordEvent.commit();
+		}
+	}
+}
@@ -0,0 +1,39 @@
+package com.parse.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The FormattingEvent. It spans a formatting pass over the code of a file.
+ */
+@Name("com.parse.Formatting")
+@Label("Formatting")
+@Category("Control Statement Parser")
+@Description("A formatting pass over the code of a source file")
+@StackTrace(false)
+public class FormattingEvent extends Event {
+
+	/**
+	 * The formatting pass, i.e. eclipse, canonicalize or google
+	 */
+	@Label("Pass")
+	private String pass;
+
+	/**
+	 * The length of the code in characters
+	 */
+	@Label("Length")
+	private int length;
+
+	public void setPass(String pass) {
+		this.pass = pass;
+	}
+
+	public void setLength(int length) {
+		this.length = length;
+	}
+}
@@ -0,0 +1,40 @@
+package com.parse.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The PredicateRecordEvent. It spans the location of the predicates in the
+ * instrumented code and the creation of the predicates file.
+ */
+@Name("com.parse.PredicateRecord")
+@Label("Predicate Record")
+@Category("Control Statement Parser")
+@Description("The recording of the predicates of a source file")
+@StackTrace(false)
+public class PredicateRecordEvent extends Event {
+
+	/**
+	 * The predicates count
+	 */
+	@Label("Predicates")
+	private int predicates;
+
+	/**
+	 * The length of the predicates record in characters
+	 */
+	@Label("Record Length")
+	private int recordLength;
+
+	public void setPredicates(int predicates) {
+		this.predicates = predicates;
+	}
+
+	public void setRecordLength(int recordLength) {
+		this.recordLength = recordLength;
+	}
+}
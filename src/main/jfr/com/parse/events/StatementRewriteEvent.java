@@ -0,0 +1,53 @@
+package com.parse.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * The StatementRewriteEvent. It spans the rewrite of a control statement into
+ * its instrumented form. By default only the rewrites slower than the
+ * threshold are recorded, since a file holds many statements.
+ */
+@Name("com.parse.StatementRewrite")
+@Label("Statement Rewrite")
+@Category("Control Statement Parser")
+@Description("The rewrite of a control statement")
+@Threshold("100 us")
+@StackTrace(false)
+public class StatementRewriteEvent extends Event {
+
+	/**
+	 * The statement type, e.g. IF or FOR
+	 */
+	@Label("Statement Type")
+	private String statementType;
+
+	/**
+	 * The length of the condition in characters
+	 */
+	@Label("Condition Length")
+	private int conditionLength;
+
+	/**
+	 * The count of the predicates of the condition
+	 */
+	@Label("Predicates")
+	private int predicates;
+
+	public void setStatementType(String statementType) {
+		this.statementType = statementType;
+	}
+
+	public void setConditionLength(int conditionLength) {
+		this.conditionLength = conditionLength;
+	}
+
+	public void setPredicates(int predicates) {
+		this.predicates = predicates;
+	}
+}
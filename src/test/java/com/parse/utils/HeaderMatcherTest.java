@@ -0,0 +1,56 @@
+package com.parse.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The HeaderMatcherTest. It checks the offsets of the control statement header
+ * parts.
+ */
+public class HeaderMatcherTest {
+
+	@Test
+	public void controlStart() {
+
+		assertEquals(4, HeaderMatcher.findControlStart("if (a) {", "if ("));
+		assertEquals(-1, HeaderMatcher.findControlStart("while (a) {", "if ("));
+	}
+
+	@Test
+	public void controlEndNestedParentheses() {
+
+		String statement = "if (f(g(a)) && (b || c)) {";
+		assertEquals(statement.lastIndexOf(')'), HeaderMatcher.findControlEnd(statement, 4));
+		assertEquals(-1, HeaderMatcher.findControlEnd("if (f(a) {", 4));
+	}
+
+	@Test
+	public void controlEndLiterals() {
+
+		String statement = "if (s.equals(\")\") && c != ')') {";
+		assertEquals(statement.lastIndexOf(')'), HeaderMatcher.findControlEnd(statement, 4));
+	}
+
+	@Test
+	public void separator() {
+
+		String statement = "for (int i = f(';', \";\"); i < n; i++) {";
+		int controlEnd = HeaderMatcher.findControlEnd(statement, 5);
+		int conditionStart = HeaderMatcher.findSeparator(statement, 5, controlEnd, ';');
+		assertEquals(statement.indexOf("; i < n"), conditionStart);
+		assertEquals(statement.indexOf("; i++"),
+				HeaderMatcher.findSeparator(statement, conditionStart + 1, controlEnd, ';'));
+		assertEquals(-1, HeaderMatcher.findSeparator(statement, statement.indexOf("i++"), controlEnd, ';'));
+	}
+
+	@Test
+	public void headerEnd() {
+
+		assertTrue(HeaderMatcher.isHeaderEnd("if (a) { ", 6, '{'));
+		assertTrue(HeaderMatcher.isHeaderEnd("if (a)", 6, '{'));
+		assertFalse(HeaderMatcher.isHeaderEnd("if (a) { b(); }", 6, '{'));
+	}
+}
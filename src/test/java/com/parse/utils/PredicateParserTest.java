@@ -0,0 +1,123 @@
+package com.parse.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.parse.models.PredicateInfo;
+
+/**
+ * The PredicateParserTest. It checks the converted statements of the control
+ * statement headers.
+ */
+public class PredicateParserTest {
+
+	@Test
+	public void nestedParentheses() {
+
+		PredicateInfo predicateInfo = PredicateParser.processIfStatement("if (a && (b || (c && d))) {",
+				new AtomicInteger());
+		assertEquals("if((P0_5=(a ))&&(P0_4=( ((P0_3=(b ))||(P0_2=( ((P0_1=(c ))&&(P0_0=( d))))))))){",
+				predicateInfo.getText());
+		assertEquals(6, predicateInfo.getPredicatesCount());
+	}
+
+	@Test
+	public void singleOperand() {
+
+		PredicateInfo predicateInfo = PredicateParser.processIfStatement("if (a) {", new AtomicInteger());
+		assertEquals("if((P0_0=(a))){", predicateInfo.getText());
+		assertEquals("(P0_0=(a))", predicateInfo.getControl());
+	}
+
+	@Test
+	public void stringLiteral() {
+
+		PredicateInfo predicateInfo = PredicateParser.processIfStatement("if (s.equals(\"&& || )\") && b) {",
+				new AtomicInteger());
+		assertEquals("if((P0_1=(s.equals(\"&& || )\") ))&&(P0_0=( b))){", predicateInfo.getText());
+	}
+
+	@Test
+	public void characterLiterals() {
+
+		PredicateInfo predicateInfo = PredicateParser.processIfStatement("if (c == '&' || c == ')') {",
+				new AtomicInteger());
+		assertEquals("if((P0_1=(c == '&' ))||(P0_0=( c == ')'))){", predicateInfo.getText());
+	}
+
+	@Test
+	public void ternary() {
+
+		PredicateInfo predicateInfo = PredicateParser.processIfStatement("if (a ? b && c : d) {",
+				new AtomicInteger());
+		assertEquals("if((P0_0=(a ? b && c : d))){", predicateInfo.getText());
+		assertEquals(1, predicateInfo.getPredicatesCount());
+	}
+
+	@Test
+	public void parenthesizedTernary() {
+
+		PredicateInfo predicateInfo = PredicateParser.processIfStatement("if ((a ? b : c) && d) {",
+				new AtomicInteger());
+		assertEquals("if((P0_1=((a ? b : c) ))&&(P0_0=( d))){", predicateInfo.getText());
+	}
+
+	@Test
+	public void lambda() {
+
+		PredicateInfo predicateInfo = PredicateParser
+				.processIfStatement("if (list.stream().anyMatch(x -> x > 0 && x < 9) || empty) {", new AtomicInteger());
+		assertEquals("if((P0_1=(list.stream().anyMatch(x -> x > 0 && x < 9) ))||(P0_0=( empty))){",
+				predicateInfo.getText());
+	}
+
+	@Test
+	public void argumentList() {
+
+		PredicateInfo predicateInfo = PredicateParser.processWhileStatement("while (f(a && b, c) && d) {",
+				new AtomicInteger());
+		assertEquals("while((P0_1=(f(a && b, c) ))&&(P0_0=( d))){", predicateInfo.getText());
+	}
+
+	@Test
+	public void elseIf() {
+
+		AtomicInteger predicateCounter = new AtomicInteger(3);
+		PredicateInfo predicateInfo = PredicateParser.processElseIfStatement("} else if (x != null && x.isEmpty()) {",
+				predicateCounter);
+		assertEquals("else if((P3_1=(x != null ))&&(P3_0=( x.isEmpty()))){", predicateInfo.getText());
+		assertEquals(4, predicateCounter.get());
+	}
+
+	@Test
+	public void doWhile() {
+
+		PredicateInfo predicateInfo = PredicateParser.processDoWhileStatement("} while (i < n && a[i] != ')');",
+				new AtomicInteger());
+		assertEquals("} while(P0=i < n && a[i] != ')');", predicateInfo.getText());
+		assertEquals("i < n && a[i] != ')'", predicateInfo.getControl());
+	}
+
+	@Test
+	public void forStatement() {
+
+		PredicateInfo predicateInfo = PredicateParser
+				.processForStatement("for (int i = 0; i < n && s.charAt(i) != ';'; i++) {", new AtomicInteger());
+		assertEquals("for(int i = 0;(P0_1=(i < n ))&&(P0_0=( s.charAt(i) != ';')); i++){", predicateInfo.getText());
+	}
+
+	@Test
+	public void notInstrumented() {
+
+		AtomicInteger predicateCounter = new AtomicInteger();
+		assertNull(PredicateParser.processIfStatement("if (true) {", predicateCounter));
+		assertNull(PredicateParser.processIfStatement("if (a) { b(); }", predicateCounter));
+		assertNull(PredicateParser.processDoWhileStatement("} while (true);", predicateCounter));
+		assertNull(PredicateParser.processForStatement("for (;;) {", predicateCounter));
+		assertEquals(0, predicateCounter.get());
+	}
+}